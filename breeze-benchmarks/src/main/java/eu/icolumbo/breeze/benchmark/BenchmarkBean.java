@@ -0,0 +1,66 @@
+package eu.icolumbo.breeze.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Bean with preallocated returns, so the allocation rate reflects Breeze only.
+ */
+public class BenchmarkBean {
+
+	/**
+	 * The number of entries in a {@link #records(String) scatter} return.
+	 */
+	public static final int SCATTER_SIZE = 10;
+
+	private final Record record = new Record("value");
+	private final List<Record> records;
+
+	public BenchmarkBean() {
+		List<Record> entries = new ArrayList<>();
+		for (int i = 0; i < SCATTER_SIZE; ++i)
+			entries.add(new Record("value" + i));
+		records = Collections.unmodifiableList(entries);
+	}
+
+	public Record record(String in) {
+		return record;
+	}
+
+	public List<Record> records(String in) {
+		return records;
+	}
+
+	public Record rule(String a, String b) {
+		return record;
+	}
+
+	public Record next() {
+		return record;
+	}
+
+	public void ack(Object id) {
+	}
+
+	public void fail(Object id) {
+	}
+
+
+	/**
+	 * Return entry with 20 properties.
+	 */
+	public static final class Record {
+
+		public final String f0, f1, f2, f3, f4, f5, f6, f7, f8, f9;
+		public final String f10, f11, f12, f13, f14, f15, f16, f17, f18, f19;
+
+		Record(String value) {
+			f0 = f1 = f2 = f3 = f4 = f5 = f6 = f7 = f8 = f9 = value;
+			f10 = f11 = f12 = f13 = f14 = f15 = f16 = f17 = f18 = f19 = value;
+		}
+
+	}
+
+}
@@ -0,0 +1,96 @@
+package eu.icolumbo.breeze.benchmark;
+
+import eu.icolumbo.breeze.FunctionSignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link FunctionSignature#findMethod(Class)} with overrides and overloads
+ * across a class hierarchy.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FunctionSignatureBenchmark {
+
+	private static final Class<?>[] LEVELS = {
+		Level0.class, Level1.class, Level2.class, Level3.class,
+		Level4.class, Level5.class, Level6.class, Level7.class,
+	};
+
+	/**
+	 * The number of superclasses below {@link Object}.
+	 */
+	@Param({"0", "3", "7"})
+	public int depth;
+
+	private final FunctionSignature signature = FunctionSignature.valueOf("process(a, b)");
+	private Class<?> type;
+
+
+	@Setup
+	public void setup() {
+		type = LEVELS[depth];
+	}
+
+	@Benchmark
+	public Method findMethod() throws ReflectiveOperationException {
+		return signature.findMethod(type);
+	}
+
+
+	public static class Level0 {
+		public Object process(Object a, Object b) {return a;}
+		public Object process(Object a) {return a;}
+	}
+
+	public static class Level1 extends Level0 {
+		public Object process(Object a, Object b, Object c) {return a;}
+		public void other(Object a) {}
+	}
+
+	public static class Level2 extends Level1 {
+		public void other(Object a, Object b) {}
+	}
+
+	public static class Level3 extends Level2 {
+		@Override
+		public Object process(Object a, Object b) {return b;}
+	}
+
+	public static class Level4 extends Level3 {
+		@Override
+		public Object process(Object a) {return null;}
+	}
+
+	public static class Level5 extends Level4 {
+		public void other(String a) {}
+	}
+
+	public static class Level6 extends Level5 {
+		@Override
+		public Object process(Object a, Object b) {return a;}
+		public Object process() {return null;}
+	}
+
+	public static class Level7 extends Level6 {
+		public void other() {}
+	}
+
+}
@@ -0,0 +1,205 @@
+package eu.icolumbo.breeze.benchmark;
+
+import clojure.lang.Atom;
+import org.apache.storm.Config;
+import org.apache.storm.generated.StormTopology;
+import org.apache.storm.metric.api.IMetric;
+import org.apache.storm.spout.ISpoutOutputCollector;
+import org.apache.storm.spout.SpoutOutputCollector;
+import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.IRichBolt;
+import org.apache.storm.topology.IRichSpout;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.topology.TopologyBuilder;
+import org.apache.storm.topology.base.BaseRichSpout;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
+import org.apache.storm.utils.Utils;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Storm runtime without a cluster.
+ */
+final class Harness {
+
+	static final String TOPOLOGY_NAME = "benchmark";
+	static final String SOURCE_ID = "source";
+	static final String SUBJECT_ID = "subject";
+	static final int SOURCE_TASK = 1;
+	static final int SUBJECT_TASK = 2;
+
+	private Harness() {
+	}
+
+	static Map<String,Object> newStormConf() {
+		Map<String,Object> stormConf = new HashMap<>();
+		stormConf.put(Config.TOPOLOGY_NAME, TOPOLOGY_NAME);
+		return stormConf;
+	}
+
+	/**
+	 * Gets a Spring setup with just the benchmark bean.
+	 */
+	static ApplicationContext newApplicationContext() {
+		StaticApplicationContext spring = new StaticApplicationContext();
+		spring.registerSingleton("benchmarkBean", BenchmarkBean.class);
+		spring.refresh();
+		return spring;
+	}
+
+	/**
+	 * Gets the context of a bolt which subscribes to a source with the input fields.
+	 */
+	static TopologyContext newTopologyContext(IRichBolt bolt, String... inputFields) {
+		TopologyBuilder builder = new TopologyBuilder();
+		builder.setSpout(SOURCE_ID, new Source(inputFields));
+		builder.setBolt(SUBJECT_ID, bolt).shuffleGrouping(SOURCE_ID);
+		return newTopologyContext(builder.createTopology(), inputFields);
+	}
+
+	/**
+	 * Gets the context of a spout without subscribers.
+	 */
+	static TopologyContext newTopologyContext(IRichSpout spout) {
+		TopologyBuilder builder = new TopologyBuilder();
+		builder.setSpout(SUBJECT_ID, spout);
+		return newTopologyContext(builder.createTopology(), new String[0]);
+	}
+
+	private static TopologyContext newTopologyContext(StormTopology topology, String[] inputFields) {
+		Map<Integer,String> taskToComponent = new HashMap<>();
+		taskToComponent.put(SOURCE_TASK, SOURCE_ID);
+		taskToComponent.put(SUBJECT_TASK, SUBJECT_ID);
+		Map<String,List<Integer>> componentToTasks = new HashMap<>();
+		componentToTasks.put(SOURCE_ID, Collections.singletonList(SOURCE_TASK));
+		componentToTasks.put(SUBJECT_ID, Collections.singletonList(SUBJECT_TASK));
+		Map<String,Map<String,Fields>> componentToStreamToFields = new HashMap<>();
+		componentToStreamToFields.put(SOURCE_ID,
+				Collections.singletonMap(Utils.DEFAULT_STREAM_ID, new Fields(inputFields)));
+
+		return new TopologyContext(topology, newStormConf(), taskToComponent, componentToTasks,
+				componentToStreamToFields, TOPOLOGY_NAME + "-1", null, null, SUBJECT_TASK, 6700,
+				Collections.singletonList(SUBJECT_TASK), new HashMap<String,Object>(), new HashMap<String,Object>(),
+				new HashMap<String,Object>(), new HashMap<Integer,Map<Integer,Map<String,IMetric>>>(),
+				new Atom(Boolean.FALSE));
+	}
+
+	/**
+	 * Gets a tuple from the {@link #SOURCE_ID source}.
+	 */
+	static Tuple newTuple(GeneralTopologyContext context, Object... values) {
+		return new TupleImpl(context, Arrays.asList(values), SOURCE_TASK, Utils.DEFAULT_STREAM_ID);
+	}
+
+
+	/**
+	 * Input of the bolt benchmarks.
+	 */
+	static final class Source extends BaseRichSpout {
+
+		private static final long serialVersionUID = 1;
+
+		private final String[] fields;
+
+		Source(String... fields) {
+			this.fields = fields;
+		}
+
+		@Override
+		public void open(Map stormConf, TopologyContext topologyContext, SpoutOutputCollector collector) {
+		}
+
+		@Override
+		public void nextTuple() {
+		}
+
+		@Override
+		public void declareOutputFields(OutputFieldsDeclarer declarer) {
+			declarer.declare(new Fields(fields));
+		}
+
+	}
+
+
+	/**
+	 * Keeps the last emit only.
+	 */
+	static final class Sink implements IOutputCollector, ISpoutOutputCollector {
+
+		List<Object> last;
+		Object lastMessageId;
+		long emitCount, ackCount, failCount;
+
+		OutputCollector forBolt() {
+			return new OutputCollector(this);
+		}
+
+		SpoutOutputCollector forSpout() {
+			return new SpoutOutputCollector(this);
+		}
+
+		@Override
+		public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+			last = tuple;
+			++emitCount;
+			return Collections.emptyList();
+		}
+
+		@Override
+		public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+			emit(streamId, anchors, tuple);
+		}
+
+		@Override
+		public List<Integer> emit(String streamId, List<Object> tuple, Object messageId) {
+			last = tuple;
+			lastMessageId = messageId;
+			++emitCount;
+			return Collections.emptyList();
+		}
+
+		@Override
+		public void emitDirect(int taskId, String streamId, List<Object> tuple, Object messageId) {
+			emit(streamId, tuple, messageId);
+		}
+
+		@Override
+		public long getPendingCount() {
+			return 0;
+		}
+
+		@Override
+		public void ack(Tuple input) {
+			++ackCount;
+		}
+
+		@Override
+		public void fail(Tuple input) {
+			++failCount;
+		}
+
+		@Override
+		public void resetTimeout(Tuple input) {
+		}
+
+		@Override
+		public void reportError(Throwable error) {
+			throw new IllegalStateException("benchmark error", error);
+		}
+
+	}
+
+}
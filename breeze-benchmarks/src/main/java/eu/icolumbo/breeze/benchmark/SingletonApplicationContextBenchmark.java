@@ -0,0 +1,54 @@
+package eu.icolumbo.breeze.benchmark;
+
+import eu.icolumbo.breeze.SingletonApplicationContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link SingletonApplicationContext#get(Map, org.apache.storm.task.TopologyContext) lookups}
+ * of an instantiated context, i.e., the executor startup path.
+ * The context is benchmark-context.xml from the classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SingletonApplicationContextBenchmark {
+
+	private final Map<String,Object> stormConf = Harness.newStormConf();
+
+
+	@Setup
+	public void setup() {
+		SingletonApplicationContext.get(stormConf, null);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public ApplicationContext uncontended() {
+		return SingletonApplicationContext.get(stormConf, null);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public ApplicationContext contended() {
+		return SingletonApplicationContext.get(stormConf, null);
+	}
+
+}
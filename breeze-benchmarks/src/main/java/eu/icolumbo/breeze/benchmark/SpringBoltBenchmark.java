@@ -0,0 +1,89 @@
+package eu.icolumbo.breeze.benchmark;
+
+import eu.icolumbo.breeze.SpringBolt;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link SpringBolt#execute(Tuple)} per input tuple.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpringBoltBenchmark {
+
+	/**
+	 * The number of output fields.
+	 */
+	@Param({"1", "5", "20"})
+	public int fields;
+
+	/**
+	 * Whether the output fields are bound with SpEL instead of by property.
+	 */
+	@Param({"false", "true"})
+	public boolean spel;
+
+	/**
+	 * Whether each invocation emits {@link BenchmarkBean#SCATTER_SIZE} tuples.
+	 */
+	@Param({"false", "true"})
+	public boolean scatter;
+
+	private SpringBolt bolt;
+	private Harness.Sink sink;
+	private Tuple input;
+
+
+	@Setup
+	public void setup() {
+		String[] outputFields = new String[fields];
+		for (int i = 0; i < fields; ++i)
+			outputFields[i] = "f" + i;
+
+		bolt = new SpringBolt(BenchmarkBean.class, scatter ? "records(in)" : "record(in)", outputFields);
+		bolt.setScatterOutput(scatter);
+		if (spel)
+			for (String name : outputFields)
+				bolt.putOutputBinding(name, name);
+		bolt.setApplicationContext(Harness.newApplicationContext());
+
+		TopologyContext context = Harness.newTopologyContext(bolt, "in");
+		sink = new Harness.Sink();
+		bolt.prepare(Harness.newStormConf(), context, sink.forBolt());
+		input = Harness.newTuple(context, "hello");
+	}
+
+	@TearDown
+	public void tearDown() {
+		bolt.cleanup();
+		if (sink.ackCount == 0)
+			throw new IllegalStateException("no acknowledgements");
+	}
+
+	@Benchmark
+	public List<Object> execute() {
+		bolt.execute(input);
+		return sink.last;
+	}
+
+}
@@ -0,0 +1,74 @@
+package eu.icolumbo.breeze.benchmark;
+
+import eu.icolumbo.breeze.SpringSpout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures {@link SpringSpout#nextTuple()} per emit.
+ * Transactional emits are acknowledged right away.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SpringSpoutBenchmark {
+
+	/**
+	 * Whether emits have a message ID with ack and fail signatures.
+	 */
+	@Param({"false", "true"})
+	public boolean transactional;
+
+	private SpringSpout spout;
+	private Harness.Sink sink;
+
+
+	@Setup
+	public void setup() {
+		spout = new SpringSpout(BenchmarkBean.class, "next()", "f0", "f1", "f2", "f3", "f4");
+		if (transactional) {
+			spout.setAckSignature("ack(f0)");
+			spout.setFailSignature("fail(f0)");
+		}
+		spout.setApplicationContext(Harness.newApplicationContext());
+
+		sink = new Harness.Sink();
+		spout.open(Harness.newStormConf(), Harness.newTopologyContext(spout), sink.forSpout());
+	}
+
+	@TearDown
+	public void tearDown() {
+		spout.close();
+		if (sink.emitCount == 0)
+			throw new IllegalStateException("no emits");
+	}
+
+	@Benchmark
+	public List<Object> nextTuple() {
+		spout.nextTuple();
+		Object messageId = sink.lastMessageId;
+		if (messageId != null) {
+			sink.lastMessageId = null;
+			spout.ack(messageId);
+		}
+		return sink.last;
+	}
+
+}
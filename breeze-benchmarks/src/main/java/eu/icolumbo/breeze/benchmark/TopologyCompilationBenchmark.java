@@ -0,0 +1,142 @@
+package eu.icolumbo.breeze.benchmark;
+
+import eu.icolumbo.breeze.ConfiguredBolt;
+import eu.icolumbo.breeze.ConfiguredSpout;
+import eu.icolumbo.breeze.SpringBolt;
+import eu.icolumbo.breeze.SpringSpout;
+import eu.icolumbo.breeze.build.TopologyCompilation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+
+
+/**
+ * Measures {@link TopologyCompilation#run()} on synthetic rule topologies
+ * against the original scan algorithm. Each bolt reads one or two fields
+ * produced earlier on its spout's line. The bolts are registered in random
+ * order, which makes the scan take many passes.
+ * The setup verifies that both algorithms give the same lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TopologyCompilationBenchmark {
+
+	@Param({"10", "100"})
+	public int spouts;
+
+	/**
+	 * The number of bolts per spout.
+	 */
+	@Param({"10", "100"})
+	public int bolts;
+
+	private ConfiguredSpout[] spoutDefinitions;
+	private ConfiguredBolt[] boltDefinitions;
+
+
+	@Setup
+	public void setup() {
+		Random random = new Random(spouts * 31 + bolts);
+		spoutDefinitions = new ConfiguredSpout[spouts];
+		List<ConfiguredBolt> boltList = new ArrayList<>();
+		for (int i = 0; i < spouts; ++i) {
+			SpringSpout spout = new SpringSpout(BenchmarkBean.class, "next()", field(i, 0), field(i, 1));
+			spout.setId("s" + i);
+			spoutDefinitions[i] = spout;
+
+			for (int j = 2; j < bolts + 2; ++j) {
+				String signature = "record(" + field(i, random.nextInt(j)) + ")";
+				if (random.nextBoolean())
+					signature = "rule(" + field(i, random.nextInt(j)) + ", " + field(i, random.nextInt(j)) + ")";
+				SpringBolt bolt = new SpringBolt(BenchmarkBean.class, signature, field(i, j));
+				bolt.setId("b" + i + "_" + j);
+				boltList.add(bolt);
+			}
+		}
+		Collections.shuffle(boltList, random);
+		boltDefinitions = boltList.toArray(new ConfiguredBolt[boltList.size()]);
+
+		Map<ConfiguredSpout,List<ConfiguredBolt>> expected = scan();
+		TopologyCompilation actual = run();
+		if (! expected.equals(new LinkedHashMap<>(actual)))
+			throw new IllegalStateException("compilation differs from the scan algorithm");
+	}
+
+	private static String field(int line, int step) {
+		return "f" + line + "_" + step;
+	}
+
+	@Benchmark
+	public TopologyCompilation run() {
+		TopologyCompilation compilation = new TopologyCompilation();
+		compilation.add(spoutDefinitions);
+		compilation.add(boltDefinitions);
+		compilation.run();
+		return compilation;
+	}
+
+	/**
+	 * Compiles the spout lines like the original algorithm: repeated scans
+	 * until no more progress, followed by the same pass through calculation.
+	 */
+	@Benchmark
+	public Map<ConfiguredSpout,List<ConfiguredBolt>> scan() {
+		Map<ConfiguredSpout,List<ConfiguredBolt>> lines = new LinkedHashMap<>();
+		for (ConfiguredSpout spout : spoutDefinitions) {
+			Set<String> availableFields = new HashSet<>(asList(spout.getOutputFields()));
+			List<ConfiguredBolt> options = new ArrayList<>(asList(boltDefinitions));
+			List<ConfiguredBolt> line = new ArrayList<>();
+			for (boolean collected = true; collected; ) {
+				collected = false;
+				for (Iterator<ConfiguredBolt> i = options.iterator(); i.hasNext(); ) {
+					ConfiguredBolt option = i.next();
+					if (availableFields.containsAll(asList(option.getInputFields()))) {
+						line.add(option);
+						availableFields.addAll(asList(option.getOutputFields()));
+						i.remove();
+						collected = true;
+					}
+				}
+			}
+			lines.put(spout, line);
+			passThrough(line);
+		}
+		return lines;
+	}
+
+	private static void passThrough(List<ConfiguredBolt> line) {
+		Set<String> requiredFields = new HashSet<>();
+		for (int i = line.size(); --i >= 0; ) {
+			ConfiguredBolt bolt = line.get(i);
+			requiredFields.removeAll(asList(bolt.getOutputFields()));
+			bolt.setPassThroughFields(requiredFields.toArray(new String[requiredFields.size()]));
+			requiredFields.addAll(asList(bolt.getInputFields()));
+		}
+	}
+
+}
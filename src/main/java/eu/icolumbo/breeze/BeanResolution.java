@@ -0,0 +1,51 @@
+package eu.icolumbo.breeze;
+
+import org.springframework.beans.factory.ListableBeanFactory;
+
+
+/**
+ * Bean instance lookup policies for {@link SpringComponent components}.
+ */
+public enum BeanResolution {
+
+	/**
+	 * Reuses singleton beans and resolves any other scope on each invocation.
+	 */
+	SCOPE {
+		@Override
+		boolean reuse(ListableBeanFactory spring, Class<?> beanType) {
+			String[] names = spring.getBeanNamesForType(beanType);
+			if (names == null || names.length == 0) return false;
+			for (String name : names)
+				if (! spring.isSingleton(name)) return false;
+			return true;
+		}
+	},
+
+	/**
+	 * Resolves the bean once per component instance, regardless of its scope.
+	 */
+	ONCE {
+		@Override
+		boolean reuse(ListableBeanFactory spring, Class<?> beanType) {
+			return true;
+		}
+	},
+
+	/**
+	 * Resolves the bean on each invocation.
+	 */
+	INVOCATION {
+		@Override
+		boolean reuse(ListableBeanFactory spring, Class<?> beanType) {
+			return false;
+		}
+	};
+
+
+	/**
+	 * Gets whether the bean may be resolved just once.
+	 */
+	abstract boolean reuse(ListableBeanFactory spring, Class<?> beanType);
+
+}
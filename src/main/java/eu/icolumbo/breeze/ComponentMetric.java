@@ -0,0 +1,195 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.metric.api.IMetric;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Invocation statistics of a {@link SpringComponent}.
+ * Counts are exact. Latencies are timed for one in every
+ * {@link SpringComponent#setMetricSampling(int) N} invocations and mappings only.
+ */
+public class ComponentMetric implements IMetric {
+
+	private final int sampling;
+	private int sampleCountdown;
+
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder tuplesIn = new LongAdder();
+	private final LongAdder tuplesOut = new LongAdder();
+	private final LongAdder backoffMillis = new LongAdder();
+	private final ConcurrentMap<String,LongAdder> exceptions = new ConcurrentHashMap<>();
+	private final Histogram invokeNanos = new Histogram();
+	private final Histogram mappingNanos = new Histogram();
+	private final Histogram scatter = new Histogram();
+
+
+	/**
+	 * @param sampling the timing interval in number of invocations.
+	 */
+	public ComponentMetric(int sampling) {
+		if (sampling < 1)
+			throw new IllegalArgumentException("sample interval " + sampling);
+		this.sampling = sampling;
+		sampleCountdown = 1;
+	}
+
+	/**
+	 * Gets whether the next operation should be timed.
+	 * Concurrent use may skew the interval, which is fine for sampling.
+	 */
+	public boolean sample() {
+		if (--sampleCountdown > 0) return false;
+		sampleCountdown = sampling;
+		return true;
+	}
+
+	/**
+	 * Registers a bean invocation.
+	 * @param nanos the duration or a negative value when not {@link #sample() sampled}.
+	 */
+	public void invoked(long nanos) {
+		invocations.increment();
+		if (nanos >= 0) invokeNanos.record(nanos);
+	}
+
+	/**
+	 * Registers the duration of a sampled output mapping.
+	 */
+	public void mapped(long nanos) {
+		mappingNanos.record(nanos);
+	}
+
+	/**
+	 * Registers input tuples.
+	 */
+	public void received(int count) {
+		tuplesIn.add(count);
+	}
+
+	/**
+	 * Registers the output tuples of an invocation.
+	 */
+	public void emitted(int count) {
+		tuplesOut.add(count);
+		scatter.record(count);
+	}
+
+	/**
+	 * Registers an exception by its type.
+	 */
+	public void failed(Throwable error) {
+		String type = error.getClass().getName();
+		LongAdder count = exceptions.get(type);
+		if (count == null) {
+			LongAdder fresh = new LongAdder();
+			count = exceptions.putIfAbsent(type, fresh);
+			if (count == null) count = fresh;
+		}
+		count.increment();
+	}
+
+	/**
+	 * Registers a spout delay.
+	 */
+	public void backedOff(long millis) {
+		backoffMillis.add(millis);
+	}
+
+	@Override
+	public Object getValueAndReset() {
+		Map<String,Object> values = new HashMap<>();
+		values.put("invocations", invocations.sumThenReset());
+		values.put("tuplesIn", tuplesIn.sumThenReset());
+		values.put("tuplesOut", tuplesOut.sumThenReset());
+		values.put("backoffMillis", backoffMillis.sumThenReset());
+		values.put("invokeLatencyMillis", invokeNanos.getValueAndReset(TimeUnit.MILLISECONDS.toNanos(1)));
+		values.put("mappingLatencyMicros", mappingNanos.getValueAndReset(TimeUnit.MICROSECONDS.toNanos(1)));
+		values.put("scatter", scatter.getValueAndReset(1));
+
+		Map<String,Long> exceptionCounts = new HashMap<>();
+		for (Map.Entry<String,LongAdder> entry : exceptions.entrySet()) {
+			long count = entry.getValue().sumThenReset();
+			if (count != 0) exceptionCounts.put(entry.getKey(), count);
+		}
+		values.put("exceptions", exceptionCounts);
+		return values;
+	}
+
+
+	/**
+	 * Value distribution with log-linear buckets, i.e., 16 linear
+	 * sub-buckets per power of two for a relative error below 7%.
+	 */
+	static final class Histogram {
+
+		private static final int SUB_BITS = 4;
+		private static final int SUB_COUNT = 1 << SUB_BITS;
+
+		private final long[] counts = new long[(64 - SUB_BITS) * SUB_COUNT];
+		private long count, sum, max;
+
+
+		static int index(long value) {
+			if (value < SUB_COUNT) return (int) Math.max(value, 0);
+			int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+			return ((shift + 1) << SUB_BITS) + (int) (value >>> shift) - SUB_COUNT;
+		}
+
+		/**
+		 * Gets the largest value for a bucket.
+		 */
+		static long highestEquivalent(int index) {
+			if (index < SUB_COUNT) return index;
+			int shift = (index >> SUB_BITS) - 1;
+			long lowest = (long) ((index & (SUB_COUNT - 1)) + SUB_COUNT) << shift;
+			return lowest + (1L << shift) - 1;
+		}
+
+		synchronized void record(long value) {
+			++counts[index(value)];
+			++count;
+			sum += value;
+			if (value > max) max = value;
+		}
+
+		/**
+		 * Gets the percentiles, mean and max in a unit.
+		 * @param unit the value per unit.
+		 */
+		synchronized Map<String,Object> getValueAndReset(double unit) {
+			Map<String,Object> values = new HashMap<>();
+			values.put("count", count);
+			values.put("mean", count == 0 ? 0.0 : sum / unit / count);
+			values.put("p50", percentile(0.5) / unit);
+			values.put("p90", percentile(0.9) / unit);
+			values.put("p99", percentile(0.99) / unit);
+			values.put("max", max / unit);
+
+			Arrays.fill(counts, 0);
+			count = sum = max = 0;
+			return values;
+		}
+
+		private long percentile(double quantile) {
+			if (count == 0) return 0;
+			long rank = (long) Math.ceil(quantile * count);
+			long seen = 0;
+			for (int i = 0; i < counts.length; ++i) {
+				seen += counts[i];
+				if (seen >= rank)
+					return Math.min(highestEquivalent(i), max);
+			}
+			return max;
+		}
+
+	}
+
+}
@@ -25,4 +25,21 @@ public interface ConfiguredBolt extends ConfiguredComponent, IRichBolt {
 	 */
 	void setPassThroughFields(String... value);
 
+	/**
+	 * Gets the input distribution policy.
+	 */
+	StreamGrouping getGrouping();
+
+	/**
+	 * Gets the field names for {@link StreamGrouping#FIELDS fields grouping}.
+	 */
+	String[] getGroupingFields();
+
+	/**
+	 * Gets the bolt which recombines the partial results of a
+	 * {@link StreamGrouping#PARTIAL_KEY partial key grouping}.
+	 * @return the instance or {@code null} for none.
+	 */
+	ConfiguredBolt getMergeBolt();
+
 }
@@ -0,0 +1,217 @@
+package eu.icolumbo.breeze;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelEvaluationException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+import static org.springframework.expression.spel.SpelMessage.EXCEPTION_DURING_PROPERTY_READ;
+import static org.springframework.util.StringUtils.capitalize;
+
+
+/**
+ * Output field value resolution.
+ * Default bindings read the return entry directly, bypassing SpEL.
+ */
+public abstract class FieldBinding {
+
+	private static final Logger logger = LoggerFactory.getLogger(FieldBinding.class);
+	private static final MethodType READER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+
+	FieldBinding() {
+	}
+
+	/**
+	 * Gets the value.
+	 * @param returnEntry the root object.
+	 * @param context the SpEL setup for expressions.
+	 */
+	abstract Object read(Object returnEntry, EvaluationContext context);
+
+	/**
+	 * Gets the return entry as is.
+	 */
+	static FieldBinding root() {
+		return ROOT;
+	}
+
+	/**
+	 * Gets a SpEL evaluation.
+	 */
+	static FieldBinding expression(Expression spel) {
+		return new ExpressionBinding(spel);
+	}
+
+	/**
+	 * Gets a property read with getters, public fields or {@link Map} keys.
+	 * @param name the property.
+	 * @param declaredType the static return entry type for early resolution.
+	 * @param fallback the SpEL equivalent for whatever can't be resolved directly.
+	 */
+	static FieldBinding property(String name, Class<?> declaredType, Expression fallback) {
+		return new PropertyBinding(name, declaredType, fallback);
+	}
+
+
+	private static final FieldBinding ROOT = new FieldBinding() {
+
+		@Override
+		Object read(Object returnEntry, EvaluationContext context) {
+			return returnEntry;
+		}
+
+		@Override
+		public String toString() {
+			return "#root";
+		}
+
+	};
+
+
+	private static final class ExpressionBinding extends FieldBinding {
+
+		private final Expression spel;
+
+		ExpressionBinding(Expression spel) {
+			this.spel = spel;
+		}
+
+		@Override
+		Object read(Object returnEntry, EvaluationContext context) {
+			return spel.getValue(context, returnEntry);
+		}
+
+		@Override
+		public String toString() {
+			return spel.getExpressionString();
+		}
+
+	}
+
+
+	private static final class PropertyBinding extends FieldBinding {
+
+		private final String name;
+		private final Class<?> declaredType;
+		private final MethodHandle declaredReader;
+		private final Expression fallback;
+
+		private final ClassValue<MethodHandle> readers = new ClassValue<MethodHandle>() {
+			@Override
+			protected MethodHandle computeValue(Class<?> type) {
+				MethodHandle reader = resolve(type, name);
+				if (reader == null)
+					logger.debug("No direct read for '{}' on {}; using SpEL", name, type);
+				return reader;
+			}
+		};
+
+		PropertyBinding(String name, Class<?> declaredType, Expression fallback) {
+			this.name = name;
+			this.fallback = fallback;
+
+			MethodHandle reader = null;
+			if (declaredType != Object.class && ! Map.class.isAssignableFrom(declaredType))
+				reader = resolve(declaredType, name);
+			this.declaredType = declaredType;
+			this.declaredReader = reader;
+		}
+
+		@Override
+		Object read(Object returnEntry, EvaluationContext context) {
+			if (returnEntry == null) return null;
+			if (returnEntry instanceof Map)
+				return ((Map<?,?>) returnEntry).get(name);
+
+			MethodHandle reader = declaredReader;
+			if (reader == null || ! declaredType.isInstance(returnEntry)) {
+				reader = readers.get(returnEntry.getClass());
+				if (reader == null)
+					return fallback.getValue(context, returnEntry);
+			}
+
+			try {
+				return (Object) reader.invokeExact(returnEntry);
+			} catch (Throwable e) {
+				throw new SpelEvaluationException(e, EXCEPTION_DURING_PROPERTY_READ, name, e.getMessage());
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "#root?." + name;
+		}
+
+	}
+
+	/**
+	 * Gets the declared type of a {@link #resolve(Class, String) property}.
+	 * @return the type or {@code null} when not available.
+	 */
+	static Class<?> resolveType(Class<?> type, String property) {
+		String suffix = capitalize(property);
+		for (String prefix : new String[] {"get", "is"}) {
+			try {
+				Method getter = type.getMethod(prefix + suffix);
+				if (! Modifier.isStatic(getter.getModifiers()) && getter.getReturnType() != void.class)
+					return getter.getReturnType();
+			} catch (NoSuchMethodException ignored) {
+			}
+		}
+		try {
+			Field field = type.getField(property);
+			if (! Modifier.isStatic(field.getModifiers()))
+				return field.getType();
+		} catch (NoSuchFieldException ignored) {
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a getter or a public field like SpEL's reflective property accessor does.
+	 * @return the reader or {@code null} when not available.
+	 */
+	static MethodHandle resolve(Class<?> type, String property) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		String suffix = capitalize(property);
+		try {
+			for (String prefix : new String[] {"get", "is"}) {
+				Method getter;
+				try {
+					getter = type.getMethod(prefix + suffix);
+				} catch (NoSuchMethodException e) {
+					continue;
+				}
+				if (Modifier.isStatic(getter.getModifiers()) || getter.getReturnType() == void.class)
+					continue;
+				getter.setAccessible(true);
+				return lookup.unreflect(getter).asType(READER_TYPE);
+			}
+
+			Field field;
+			try {
+				field = type.getField(property);
+			} catch (NoSuchFieldException e) {
+				return null;
+			}
+			if (Modifier.isStatic(field.getModifiers()))
+				return null;
+			field.setAccessible(true);
+			return lookup.unreflectGetter(field).asType(READER_TYPE);
+		} catch (IllegalAccessException | RuntimeException e) {
+			logger.debug("Direct access for '{}' on {} denied: {}", property, type, e.toString());
+			return null;
+		}
+	}
+
+}
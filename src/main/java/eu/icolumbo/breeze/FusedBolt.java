@@ -0,0 +1,313 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.Config;
+import org.apache.storm.generated.GlobalStreamId;
+import org.apache.storm.metric.api.IMetric;
+import org.apache.storm.task.GeneralTopologyContext;
+import org.apache.storm.task.IOutputCollector;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.TupleImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Consecutive {@link SpringBolt#isSynchronous() synchronous} bolts in a single Storm executor.
+ * Each stage emits directly into the next one, without queue handoff nor serialization.
+ * Only the last stage emits to Storm, anchored to the input tuple.
+ */
+public class FusedBolt implements ConfiguredBolt {
+
+	private static final Logger logger = LoggerFactory.getLogger(FusedBolt.class);
+	private static final long serialVersionUID = 1;
+
+	private final SpringBolt[] stages;
+	private final String[] stageIds;
+	private String id;
+
+	private transient OutputCollector collector;
+	private transient GeneralTopologyContext stageContext;
+	private transient Tuple root;
+	private transient boolean rootFailed;
+	private transient boolean[] anchored;
+	private transient long[] executed, executeNanos;
+
+
+	/**
+	 * @param stages the bolts in order of execution.
+	 */
+	public FusedBolt(List<SpringBolt> stages) {
+		if (stages.size() < 2)
+			throw new IllegalArgumentException("fusion needs at least 2 bolts");
+		this.stages = stages.toArray(new SpringBolt[stages.size()]);
+
+		stageIds = new String[this.stages.length];
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < stageIds.length; ++i) {
+			stageIds[i] = this.stages[i].getId();
+			if (! this.stages[i].getRoutes().isEmpty())
+				throw new IllegalArgumentException("routed stage " + stageIds[i]);
+			if (i != 0) buffer.append('+');
+			buffer.append(stageIds[i]);
+		}
+		id = buffer.toString();
+	}
+
+	@Override
+	public void prepare(Map stormConf, TopologyContext topologyContext, OutputCollector outputCollector) {
+		logger.trace("{} Storm init", this);
+		collector = outputCollector;
+
+		int count = stages.length;
+		anchored = new boolean[count];
+		executed = new long[count];
+		executeNanos = new long[count];
+
+		Map<Integer,String> taskToComponent = new HashMap<>();
+		Map<String,List<Integer>> componentToTasks = new HashMap<>();
+		Map<String,Map<String,Fields>> componentToStreamToFields = new HashMap<>();
+		for (int i = 0; i < count; ++i) {
+			SpringBolt stage = stages[i];
+			taskToComponent.put(i, stageIds[i]);
+			componentToTasks.put(stageIds[i], Collections.singletonList(i));
+			componentToStreamToFields.put(stageIds[i],
+					Collections.singletonMap(stage.getOutputStreamId(), getEmitFields(stage)));
+		}
+		stageContext = new GeneralTopologyContext(topologyContext.getRawTopology(), stormConf,
+				taskToComponent, componentToTasks, componentToStreamToFields, topologyContext.getStormId());
+
+		stages[0].setId(stageIds[0]);
+		stages[0].prepare(stormConf, topologyContext, new OutputCollector(new Link(0)));
+		for (int i = 1; i < count; ++i) {
+			SpringBolt source = stages[i - 1];
+			GlobalStreamId stream = new GlobalStreamId(stageIds[i - 1], source.getOutputStreamId());
+			stages[i].setId(stageIds[i]);
+			stages[i].prepare(stormConf, topologyContext, new OutputCollector(new Link(i)),
+					Collections.singletonMap(stream, getEmitFields(source)));
+		}
+
+		Object bucket = stormConf.get(Config.TOPOLOGY_BUILTIN_METRICS_BUCKET_SIZE_SECS);
+		int bucketSeconds = bucket instanceof Number ? ((Number) bucket).intValue() : 60;
+		topologyContext.registerMetric("breeze-fused", new StageMetric(), bucketSeconds);
+	}
+
+	private static Fields getEmitFields(SpringBolt bolt) {
+		List<String> names = new ArrayList<>();
+		Collections.addAll(names, bolt.getLiveOutputFields());
+		Collections.addAll(names, bolt.getPassThroughFields());
+		return new Fields(names);
+	}
+
+	@Override
+	public void execute(Tuple input) {
+		root = input;
+		rootFailed = false;
+		anchored[0] = true;
+		try {
+			execute(0, input);
+		} finally {
+			root = null;
+		}
+	}
+
+	private void execute(int stage, Tuple input) {
+		long start = System.nanoTime();
+		stages[stage].execute(input);
+		executeNanos[stage] += System.nanoTime() - start;
+		++executed[stage];
+	}
+
+	@Override
+	public void cleanup() {
+		for (SpringBolt stage : stages)
+			stage.cleanup();
+	}
+
+	@Override
+	public void declareOutputFields(OutputFieldsDeclarer declarer) {
+		stages[stages.length - 1].declareOutputFields(declarer);
+	}
+
+	@Override
+	public Map<String,Object> getComponentConfiguration() {
+		Map<String,Object> config = null;
+		for (SpringBolt stage : stages) {
+			Map<String,Object> stageConfig = stage.getComponentConfiguration();
+			if (stageConfig == null) continue;
+			if (config == null) config = new HashMap<>();
+			config.putAll(stageConfig);
+		}
+		return config;
+	}
+
+	/**
+	 * Gets the bolts in order of execution.
+	 */
+	public List<SpringBolt> getStages() {
+		return Collections.unmodifiableList(Arrays.asList(stages));
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(String value) {
+		id = value;
+	}
+
+	@Override
+	public String getOutputStreamId() {
+		return stages[stages.length - 1].getOutputStreamId();
+	}
+
+	@Override
+	public String[] getOutputFields() {
+		return stages[stages.length - 1].getOutputFields();
+	}
+
+	@Override
+	public Number getParallelism() {
+		return stages[0].getParallelism();
+	}
+
+	@Override
+	public String[] getInputFields() {
+		return stages[0].getInputFields();
+	}
+
+	@Override
+	public String[] getPassThroughFields() {
+		return stages[stages.length - 1].getPassThroughFields();
+	}
+
+	@Override
+	public void setPassThroughFields(String... value) {
+		stages[stages.length - 1].setPassThroughFields(value);
+	}
+
+	@Override
+	public StreamGrouping getGrouping() {
+		return stages[0].getGrouping();
+	}
+
+	@Override
+	public String[] getGroupingFields() {
+		return stages[0].getGroupingFields();
+	}
+
+	@Override
+	public ConfiguredBolt getMergeBolt() {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder("[fused bolt '");
+		buffer.append(getId()).append("']");
+		return buffer.toString();
+	}
+
+
+	/**
+	 * Output of a stage, which feeds the next stage or Storm.
+	 * Only the first stage acknowledges the input tuple.
+	 */
+	private final class Link implements IOutputCollector {
+
+		private final int stage;
+
+		Link(int stage) {
+			this.stage = stage;
+		}
+
+		@Override
+		public List<Integer> emit(String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+			boolean anchor = anchored[stage] && anchors != null && ! anchors.isEmpty();
+			if (stage == stages.length - 1) {
+				if (anchor)
+					return collector.emit(streamId, root, tuple);
+				return collector.emit(streamId, tuple);
+			}
+
+			anchored[stage + 1] = anchor;
+			execute(stage + 1, new TupleImpl(stageContext, tuple, stage, streamId));
+			return Collections.emptyList();
+		}
+
+		@Override
+		public void emitDirect(int taskId, String streamId, Collection<Tuple> anchors, List<Object> tuple) {
+			throw new UnsupportedOperationException("direct emit from fused stage");
+		}
+
+		@Override
+		public void ack(Tuple input) {
+			if (stage != 0) return;
+			if (rootFailed)
+				collector.fail(input);
+			else
+				collector.ack(input);
+		}
+
+		@Override
+		public void fail(Tuple input) {
+			if (stage == 0)
+				collector.fail(input);
+			else if (anchored[stage])
+				rootFailed = true;
+		}
+
+		@Override
+		public void resetTimeout(Tuple input) {
+			if (root != null) collector.resetTimeout(root);
+		}
+
+		@Override
+		public void reportError(Throwable error) {
+			collector.reportError(error);
+		}
+
+	}
+
+
+	/**
+	 * Executions and exclusive latency per stage.
+	 */
+	private final class StageMetric implements IMetric {
+
+		@Override
+		public Object getValueAndReset() {
+			Map<String,Object> values = new HashMap<>();
+			for (int i = 0; i < stages.length; ++i) {
+				long nanos = executeNanos[i];
+				if (i + 1 < stages.length)
+					nanos -= executeNanos[i + 1];
+
+				Map<String,Object> stageValues = new HashMap<>();
+				stageValues.put("executed", executed[i]);
+				stageValues.put("executeLatencyMillis", executed[i] == 0 ? 0.0
+						: (double) nanos / executed[i] / TimeUnit.MILLISECONDS.toNanos(1));
+				values.put(stageIds[i], stageValues);
+			}
+			Arrays.fill(executed, 0);
+			Arrays.fill(executeNanos, 0);
+			return values;
+		}
+
+	}
+
+}
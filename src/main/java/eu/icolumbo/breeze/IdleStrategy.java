@@ -0,0 +1,62 @@
+package eu.icolumbo.breeze;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Wait policies for {@link SpringSpout spouts} without anything to emit.
+ */
+public enum IdleStrategy {
+
+	/**
+	 * Returns immediately.
+	 */
+	SPIN {
+		@Override
+		void idle(long millis) {
+		}
+	},
+
+	/**
+	 * Gives other threads a chance to run.
+	 */
+	YIELD {
+		@Override
+		void idle(long millis) {
+			Thread.yield();
+		}
+	},
+
+	/**
+	 * Parks the thread for at most the idle delay.
+	 */
+	PARK {
+		@Override
+		void idle(long millis) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+		}
+	},
+
+	/**
+	 * Sleeps the idle delay.
+	 */
+	SLEEP {
+		@Override
+		void idle(long millis) {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	};
+
+
+	/**
+	 * Waits.
+	 * @param millis the idle delay.
+	 */
+	abstract void idle(long millis);
+
+}
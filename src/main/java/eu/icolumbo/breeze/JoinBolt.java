@@ -0,0 +1,250 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.Config;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.TupleUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.storm.utils.Utils.DEFAULT_STREAM_ID;
+
+
+/**
+ * Recombines the output of parallel branches. Each output tuple gets a new
+ * {@link #KEY_FIELD correlation key}, which the branches pass through.
+ * With a single branch the bolt just forks, i.e., it adds the key.
+ */
+public class JoinBolt implements ConfiguredBolt {
+
+	private static final Logger logger = LoggerFactory.getLogger(JoinBolt.class);
+	private static final long serialVersionUID = 1;
+
+	/**
+	 * The correlation key field name.
+	 */
+	public static final String KEY_FIELD = "breeze-join-key";
+
+	private final int branches;
+	private final String[] fields;
+	private String id;
+	private Number parallelism;
+
+	private transient OutputCollector collector;
+	private transient long keyPrefix;
+	private transient int keySequence;
+	private transient Map<Object,Pending> pending;
+	private transient long timeoutMillis;
+
+
+	/**
+	 * @param branches the number of input streams per key.
+	 * @param fields the names to collect from the branches.
+	 */
+	public JoinBolt(String id, int branches, String... fields) {
+		if (branches < 1)
+			throw new IllegalArgumentException("branch count " + branches);
+		this.id = id;
+		this.branches = branches;
+		this.fields = fields;
+	}
+
+	@Override
+	public void prepare(Map stormConf, TopologyContext topologyContext, OutputCollector outputCollector) {
+		logger.trace("{} Storm init", this);
+		collector = outputCollector;
+		keyPrefix = (long) topologyContext.getThisTaskId() << 32;
+		keySequence = 0;
+		pending = new LinkedHashMap<>();
+
+		Object timeout = stormConf.get(Config.TOPOLOGY_MESSAGE_TIMEOUT_SECS);
+		int timeoutSeconds = timeout instanceof Number ? ((Number) timeout).intValue() : 30;
+		timeoutMillis = timeoutSeconds * 1000L;
+	}
+
+	@Override
+	public void execute(Tuple input) {
+		if (TupleUtils.isTick(input)) {
+			expire(System.currentTimeMillis() - timeoutMillis);
+			return;
+		}
+
+		if (branches == 1) {
+			Values output = new Values();
+			for (String name : fields)
+				output.add(input.getValueByField(name));
+			emit(Collections.singletonList(input), output);
+			collector.ack(input);
+			return;
+		}
+
+		Object key = input.getValueByField(KEY_FIELD);
+		Pending entry = pending.get(key);
+		if (entry == null) {
+			entry = new Pending();
+			pending.put(key, entry);
+		}
+		entry.inputs.add(input);
+		for (String name : fields)
+			if (input.contains(name))
+				entry.values.put(name, input.getValueByField(name));
+		if (entry.inputs.size() < branches) return;
+
+		pending.remove(key);
+		Values output = new Values();
+		for (String name : fields)
+			output.add(entry.values.get(name));
+		emit(entry.inputs, output);
+		for (Tuple t : entry.inputs)
+			collector.ack(t);
+	}
+
+	/**
+	 * Emits with a new correlation key.
+	 */
+	private void emit(List<Tuple> anchors, Values output) {
+		output.add(keyPrefix | (keySequence++ & 0xffffffffL));
+		logger.trace("Joined tuple emit");
+		collector.emit(DEFAULT_STREAM_ID, anchors, output);
+	}
+
+	/**
+	 * Fails incomplete joins.
+	 * @param deadline the creation time limit.
+	 */
+	private void expire(long deadline) {
+		int count = 0;
+		for (Iterator<Pending> i = pending.values().iterator(); i.hasNext(); ) {
+			Pending entry = i.next();
+			if (entry.created > deadline) break;
+			i.remove();
+			for (Tuple t : entry.inputs)
+				collector.fail(t);
+			++count;
+		}
+		if (count != 0)
+			logger.warn("{} expired {} incomplete joins", this, count);
+	}
+
+	@Override
+	public void cleanup() {
+		if (pending != null && ! pending.isEmpty())
+			logger.warn("{} abandons {} incomplete joins", this, pending.size());
+	}
+
+	@Override
+	public void declareOutputFields(OutputFieldsDeclarer declarer) {
+		declarer.declareStream(getOutputStreamId(), new Fields(getOutputFields()));
+	}
+
+	/**
+	 * Requests tick tuples for the expiry of incomplete joins.
+	 */
+	@Override
+	public Map<String,Object> getComponentConfiguration() {
+		if (branches == 1) return null;
+		return TupleUtils.putTickFrequencyIntoComponentConfig(new HashMap<String,Object>(), 1);
+	}
+
+	/**
+	 * Gets the number of input streams per key.
+	 */
+	public int getBranches() {
+		return branches;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(String value) {
+		id = value;
+	}
+
+	@Override
+	public String getOutputStreamId() {
+		return DEFAULT_STREAM_ID;
+	}
+
+	@Override
+	public String[] getOutputFields() {
+		String[] names = new String[fields.length + 1];
+		System.arraycopy(fields, 0, names, 0, fields.length);
+		names[fields.length] = KEY_FIELD;
+		return names;
+	}
+
+	@Override
+	public Number getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(Number value) {
+		parallelism = value;
+	}
+
+	@Override
+	public String[] getInputFields() {
+		return fields;
+	}
+
+	@Override
+	public String[] getPassThroughFields() {
+		return new String[0];
+	}
+
+	@Override
+	public void setPassThroughFields(String... value) {
+		if (value.length != 0)
+			throw new UnsupportedOperationException("join pass through");
+	}
+
+	@Override
+	public StreamGrouping getGrouping() {
+		return branches == 1 ? StreamGrouping.NONE : StreamGrouping.FIELDS;
+	}
+
+	@Override
+	public String[] getGroupingFields() {
+		return branches == 1 ? new String[0] : new String[] {KEY_FIELD};
+	}
+
+	@Override
+	public ConfiguredBolt getMergeBolt() {
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder(branches == 1 ? "[fork '" : "[join '");
+		buffer.append(getId()).append("']");
+		return buffer.toString();
+	}
+
+
+	/**
+	 * Incomplete join.
+	 */
+	private static final class Pending {
+
+		final long created = System.currentTimeMillis();
+		final List<Tuple> inputs = new ArrayList<>();
+		final Map<String,Object> values = new HashMap<>();
+
+	}
+
+}
@@ -0,0 +1,142 @@
+package eu.icolumbo.breeze;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.invoke.MethodType.genericMethodType;
+
+
+/**
+ * Compiled bean method binding.
+ * The {@link Method} is converted into a {@link MethodHandle} once such that the JIT can
+ * inline the bean call. Reflection remains as a fallback for methods which can't be unreflected.
+ */
+public final class MethodInvoker {
+
+	private static final Logger logger = LoggerFactory.getLogger(MethodInvoker.class);
+	private static final List<Class<?>> NUMERIC_ORDER = Arrays.<Class<?>>asList(
+			byte.class, short.class, int.class, long.class, float.class, double.class);
+	private static final List<Class<?>> NUMERIC_BOXES = Arrays.<Class<?>>asList(
+			Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class);
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+	private final Method method;
+	private final MethodHandle handle;
+
+
+	private MethodInvoker(Method method, MethodHandle handle) {
+		this.method = method;
+		this.handle = handle;
+	}
+
+	/**
+	 * Compiles an invoker.
+	 * @param method the target, which should be accessible already.
+	 */
+	public static MethodInvoker of(Method method) {
+		MethodHandle handle = null;
+		try {
+			handle = compile(method);
+		} catch (IllegalAccessException | RuntimeException e) {
+			logger.info("Reflection fallback for {}: {}", method.toGenericString(), e.toString());
+		}
+		return new MethodInvoker(method, handle);
+	}
+
+	private static MethodHandle compile(Method method) throws IllegalAccessException {
+		MethodHandle target = MethodHandles.lookup().unreflect(method);
+		if (Modifier.isStatic(method.getModifiers()))
+			target = MethodHandles.dropArguments(target, 0, Object.class);
+
+		int parameterCount = method.getParameterTypes().length;
+		MethodHandle generic = target.asType(genericMethodType(parameterCount + 1));
+		return generic.asSpreader(Object[].class, parameterCount).asType(INVOKER_TYPE);
+	}
+
+	/**
+	 * Gets the binding.
+	 */
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * Gets whether a {@link MethodHandle} is in use.
+	 */
+	public boolean isCompiled() {
+		return handle != null;
+	}
+
+	/**
+	 * Calls the method with the same semantics as {@link Method#invoke(Object, Object...)}.
+	 */
+	public Object invoke(Object bean, Object[] arguments)
+	throws InvocationTargetException, IllegalAccessException {
+		if (handle == null)
+			return method.invoke(bean, arguments);
+
+		try {
+			return (Object) handle.invokeExact(bean, arguments);
+		} catch (ClassCastException | NullPointerException | IllegalArgumentException e) {
+			// Can't tell argument conversion failures apart from errors in the bean itself.
+			if (! accepts(bean, arguments))
+				throw new IllegalArgumentException("argument type mismatch", e);
+			throw new InvocationTargetException(e);
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	private boolean accepts(Object bean, Object[] arguments) {
+		if (! Modifier.isStatic(method.getModifiers())
+				&& ! method.getDeclaringClass().isInstance(bean))
+			return false;
+
+		Class<?>[] parameters = method.getParameterTypes();
+		if (arguments == null)
+			return parameters.length == 0;
+		if (arguments.length != parameters.length)
+			return false;
+
+		for (int i = parameters.length; --i >= 0; ) {
+			Class<?> type = parameters[i];
+			Object value = arguments[i];
+			if (value == null) {
+				if (type.isPrimitive()) return false;
+				continue;
+			}
+			if (type.isPrimitive() ? ! widens(value.getClass(), type) : ! type.isInstance(value))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets whether a boxed value converts to a primitive type with JLS 5.1.2.
+	 */
+	private static boolean widens(Class<?> boxed, Class<?> primitive) {
+		if (primitive == boolean.class)
+			return boxed == Boolean.class;
+		if (boxed == Character.class)
+			return primitive == char.class || NUMERIC_ORDER.indexOf(primitive) >= NUMERIC_ORDER.indexOf(int.class);
+
+		int from = NUMERIC_BOXES.indexOf(boxed);
+		int to = NUMERIC_ORDER.indexOf(primitive);
+		return from >= 0 && to >= from;
+	}
+
+	@Override
+	public String toString() {
+		return method.toGenericString();
+	}
+
+}
@@ -0,0 +1,100 @@
+package eu.icolumbo.breeze;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Bounded lock-free queue for multiple producers and multiple consumers.
+ * Each slot carries a sequence number which tells whether it is ready for the
+ * next write or for the next read, as described by Dmitry Vyukov.
+ */
+final class RingBuffer<E> {
+
+	private final int mask;
+	private final AtomicReferenceArray<E> elements;
+	private final AtomicLongArray sequences;
+	private final AtomicLong writePosition = new AtomicLong();
+	private final AtomicLong readPosition = new AtomicLong();
+
+
+	/**
+	 * @param capacity the minimum number of elements, rounded up to a power of two.
+	 */
+	RingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("capacity " + capacity);
+		int size = 1;
+		while (size < capacity) size <<= 1;
+
+		mask = size - 1;
+		elements = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; ++i)
+			sequences.set(i, i);
+	}
+
+	/**
+	 * Appends an element.
+	 * @return whether successful, i.e., {@code false} when full.
+	 */
+	boolean offer(E element) {
+		if (element == null) throw new NullPointerException();
+		long position = writePosition.get();
+		while (true) {
+			int index = (int) position & mask;
+			long lag = sequences.get(index) - position;
+			if (lag == 0) {
+				if (writePosition.compareAndSet(position, position + 1)) {
+					elements.lazySet(index, element);
+					sequences.lazySet(index, position + 1);
+					return true;
+				}
+			} else if (lag < 0) {
+				return false;
+			}
+			position = writePosition.get();
+		}
+	}
+
+	/**
+	 * Removes the oldest element.
+	 * @return the element or {@code null} when empty.
+	 */
+	E poll() {
+		long position = readPosition.get();
+		while (true) {
+			int index = (int) position & mask;
+			long lag = sequences.get(index) - (position + 1);
+			if (lag == 0) {
+				if (readPosition.compareAndSet(position, position + 1)) {
+					E element = elements.get(index);
+					elements.lazySet(index, null);
+					sequences.lazySet(index, position + mask + 1);
+					return element;
+				}
+			} else if (lag < 0) {
+				return null;
+			}
+			position = readPosition.get();
+		}
+	}
+
+	/**
+	 * Gets an estimate of the number of elements.
+	 */
+	int size() {
+		long size = writePosition.get() - readPosition.get();
+		if (size < 0) return 0;
+		return (int) Math.min(size, capacity());
+	}
+
+	/**
+	 * Gets the maximum number of elements.
+	 */
+	int capacity() {
+		return mask + 1;
+	}
+
+}
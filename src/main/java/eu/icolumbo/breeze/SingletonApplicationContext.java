@@ -10,8 +10,11 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 import org.springframework.core.env.MapPropertySource;
 import org.springframework.core.env.PropertySource;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import static java.lang.String.format;
 import static java.util.Collections.checkedMap;
@@ -29,14 +32,24 @@ public enum SingletonApplicationContext {
 
 	private static final Logger logger = LoggerFactory.getLogger(SingletonApplicationContext.class);
 
-	private final Map<String,ApplicationContext> registry = new HashMap<>();
+	private final ConcurrentMap<String,FutureTask<ApplicationContext>> registry = new ConcurrentHashMap<>();
 
 
 	/**
 	 * Gets the Spring setup for the respective Storm topology.
 	 */
-	public static synchronized ApplicationContext get(Map stormConf, TopologyContext topologyContext) {
-		String topologyName = (String) stormConf.get(Config.TOPOLOGY_NAME);
+	public static ApplicationContext get(Map stormConf, TopologyContext topologyContext) {
+		return get(stormConf);
+	}
+
+	/**
+	 * Gets the Spring setup for the respective Storm topology.
+	 * The first caller loads the context while others for the same topology wait.
+	 * Contexts of different topologies load in parallel.
+	 * A failed load is not retained, i.e., the next caller tries again.
+	 */
+	public static ApplicationContext get(final Map<?,?> stormConf) {
+		final String topologyName = (String) stormConf.get(Config.TOPOLOGY_NAME);
 		if (! hasText(topologyName)) {
 			String msg = "Missing required '" + Config.TOPOLOGY_NAME + "' in Storm configuration";
 			throw new IllegalStateException(msg);
@@ -44,15 +57,35 @@ public enum SingletonApplicationContext {
 
 		logger.debug("Application context lookup for topology '{}'", topologyName);
 
-		ApplicationContext entry = INSTANCE.registry.get(topologyName);
+		ConcurrentMap<String,FutureTask<ApplicationContext>> registry = INSTANCE.registry;
+		FutureTask<ApplicationContext> entry = registry.get(topologyName);
 		if (entry == null) {
-			logger.debug("Need new application context");
-			entry = loadXml(stormConf, format("classpath:/%s-context.xml", topologyName));
-			logger.info("Application context instantiated for topology '{}'", topologyName);
-			INSTANCE.registry.put(topologyName, entry);
+			FutureTask<ApplicationContext> load = new FutureTask<>(() -> {
+				ApplicationContext result = loadXml(stormConf, format("classpath:/%s-context.xml", topologyName));
+				logger.info("Application context instantiated for topology '{}'", topologyName);
+				return result;
+			});
+			entry = registry.putIfAbsent(topologyName, load);
+			if (entry == null) {
+				logger.debug("Need new application context");
+				entry = load;
+				load.run();
+			}
 		}
 
-		return entry;
+		try {
+			return entry.get();
+		} catch (ExecutionException e) {
+			registry.remove(topologyName, entry);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IllegalStateException("Application context load failed for topology '" + topologyName + "'", cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			String msg = "Interrupted while waiting for the application context of topology '" + topologyName + "'";
+			throw new IllegalStateException(msg, e);
+		}
 	}
 
 	/**
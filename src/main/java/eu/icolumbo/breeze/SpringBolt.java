@@ -1,18 +1,43 @@
 package eu.icolumbo.breeze;
 
+import org.apache.storm.generated.GlobalStreamId;
+import org.apache.storm.generated.Grouping;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
 import org.apache.storm.tuple.Fields;
 import org.apache.storm.tuple.Tuple;
 import org.apache.storm.tuple.Values;
+import org.apache.storm.utils.TupleUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
 
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
 
 
 /**
@@ -26,9 +51,30 @@ public class SpringBolt extends SpringComponent implements ConfiguredBolt {
 	private static final long serialVersionUID = 8;
 
 	private OutputCollector collector;
+	private transient SpringBolt mergeBolt;
 
 	private boolean doAnchor = true;
 	private String[] passThroughFields = {};
+	private StreamGrouping grouping = StreamGrouping.NONE;
+	private String[] groupingFields = {};
+	private String mergeSignature;
+	private int batchSize = 1;
+	private long batchTimeout;
+	private int maxInFlight = 64;
+	private boolean orderedCompletion;
+	private String executor;
+	private String orderingKey;
+
+	private transient Map<String,Map<String,InputLayout>> inputLayouts;
+	private transient InputLayout lastInputLayout;
+	private transient List<Tuple> batch;
+	private transient long batchStart;
+	private transient boolean async;
+	private transient int inFlight;
+	private transient Queue<Invocation> submitted;
+	private transient BlockingQueue<Invocation> completions;
+	private transient ExecutorService pool;
+	private transient Map<Object,CompletableFuture<Object>> lanes;
 
 
 	public SpringBolt(Class<?> beanType, String invocation, String... outputFields) {
@@ -37,9 +83,140 @@ public class SpringBolt extends SpringComponent implements ConfiguredBolt {
 
 	@Override
 	public void prepare(Map stormConf, TopologyContext topologyContext, OutputCollector outputCollector) {
+		Map<GlobalStreamId,Fields> sources = new HashMap<>();
+		Map<GlobalStreamId,Grouping> inputs = topologyContext.getThisSources();
+		if (inputs != null)
+			for (GlobalStreamId source : inputs.keySet())
+				sources.put(source, topologyContext.getComponentOutputFields(source));
+		prepare(stormConf, topologyContext, outputCollector, sources);
+	}
+
+	/**
+	 * Storm init with explicit input streams.
+	 * @param sources the field names per input stream.
+	 */
+	void prepare(Map<?,?> stormConf, TopologyContext topologyContext, OutputCollector outputCollector,
+			Map<GlobalStreamId,Fields> sources) {
 		logger.trace("{} Storm init", this);
 		collector = outputCollector;
 		super.init(stormConf, topologyContext);
+		initInputLayouts(sources);
+		batch = new ArrayList<>(Math.max(batchSize, 1));
+
+		pool = hasText(executor) ? newPool() : null;
+		async = pool != null || CompletionStage.class.isAssignableFrom(getReturnType());
+		if (async) {
+			if (maxInFlight < 1)
+				throw new IllegalStateException(this + " needs a positive in-flight limit");
+			logger.info("{} completes asynchronously with up to {} invocations in flight",
+					this, maxInFlight);
+			inFlight = 0;
+			submitted = new ArrayDeque<>();
+			completions = new LinkedBlockingQueue<>();
+			lanes = new HashMap<>();
+		}
+	}
+
+	/**
+	 * Instantiates the {@link #setExecutor(String) executor}.
+	 */
+	private ExecutorService newPool() {
+		if ("virtual".equals(executor)) {
+			try {
+				Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+				logger.info("{} invokes on virtual threads", this);
+				return (ExecutorService) factory.invoke(null);
+			} catch (ReflectiveOperationException e) {
+				logger.warn("{} falls back to {} platform threads; no virtual thread support",
+						this, maxInFlight);
+				return Executors.newFixedThreadPool(maxInFlight, newThreadFactory());
+			}
+		}
+
+		int threads;
+		try {
+			threads = Integer.parseInt(executor);
+		} catch (NumberFormatException e) {
+			threads = 0;
+		}
+		if (threads < 1)
+			throw new IllegalStateException(this + " executor should be 'virtual' or a thread count: " + executor);
+		logger.info("{} invokes on {} threads", this, threads);
+		return Executors.newFixedThreadPool(threads, newThreadFactory());
+	}
+
+	private ThreadFactory newThreadFactory() {
+		final String prefix = "breeze-" + getId() + "-";
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, prefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Resolves the field indices per source stream.
+	 */
+	private void initInputLayouts(Map<GlobalStreamId,Fields> sources) {
+		inputLayouts = new HashMap<>();
+		lastInputLayout = null;
+
+		for (Map.Entry<GlobalStreamId,Fields> entry : sources.entrySet()) {
+			GlobalStreamId source = entry.getKey();
+			Fields fields = entry.getValue();
+			if (fields == null) continue;
+
+			int[] arguments = indices(fields, getInputFields());
+			int[] passThrough = indices(fields, passThroughFields);
+			if (arguments == null || passThrough == null) {
+				logger.warn("{} can't resolve all fields from {}", this, source);
+				continue;
+			}
+
+			String componentId = source.get_componentId();
+			Map<String,InputLayout> streams = inputLayouts.get(componentId);
+			if (streams == null) {
+				streams = new HashMap<>();
+				inputLayouts.put(componentId, streams);
+			}
+			String streamId = source.get_streamId();
+			streams.put(streamId, new InputLayout(componentId, streamId, arguments, passThrough));
+		}
+		logger.debug("{} has input layouts for {}", this, inputLayouts.keySet());
+	}
+
+	private static int[] indices(Fields fields, String[] names) {
+		int[] indices = new int[names.length];
+		for (int i = names.length; --i >= 0; ) {
+			if (! fields.contains(names[i])) return null;
+			indices[i] = fields.fieldIndex(names[i]);
+		}
+		return indices;
+	}
+
+	/**
+	 * Gets the field indices for the source stream.
+	 * @return the match or {@code null} for name lookups.
+	 */
+	private InputLayout getInputLayout(Tuple input) {
+		String componentId = input.getSourceComponent();
+		String streamId = input.getSourceStreamId();
+
+		InputLayout layout = lastInputLayout;
+		if (layout != null && layout.componentId.equals(componentId) && layout.streamId.equals(streamId))
+			return layout;
+
+		if (inputLayouts == null) return null;
+		Map<String,InputLayout> streams = inputLayouts.get(componentId);
+		if (streams == null) return null;
+		layout = streams.get(streamId);
+		if (layout != null)
+			lastInputLayout = layout;
+		return layout;
 	}
 
 	/**
@@ -49,49 +226,46 @@ public class SpringBolt extends SpringComponent implements ConfiguredBolt {
 	@Override
 	public void declareOutputFields(OutputFieldsDeclarer declarer) {
 		List<String> names = new ArrayList<>();
-		for (String f : getOutputFields()) names.add(f);
+		for (String f : getLiveOutputFields()) names.add(f);
 		for (String f : passThroughFields) names.add(f);
 		String streamId = getOutputStreamId();
 		logger.info("{} declares {} for stream '{}'",
 				new Object[] {this, names, streamId});
 		declarer.declareStream(streamId, new Fields(names));
+		declareRoutes(declarer);
 	}
 
 	@Override
 	public void execute(Tuple input) {
+		if (async) drainCompletions();
+
+		if ((async || batchSize > 1) && TupleUtils.isTick(input)) {
+			logger.trace("{} tick", this);
+			if (batchSize > 1 && ! batch.isEmpty()) flush();
+			return;
+		}
+
+		ComponentMetric metric = getMetric();
+		if (metric != null) metric.received(1);
+
+		if (batchSize > 1) {
+			executeBatched(input);
+			return;
+		}
+
 		logger.trace("{} execute", this);
+		InputLayout layout = getInputLayout(input);
 		try {
-			String[] inputFields = getInputFields();
-			Object[] arguments = new Object[inputFields.length];
-			for (int i = arguments.length; --i >= 0;
-				arguments[i] = input.getValueByField(inputFields[i]));
+			Object[] arguments = new Object[getInputFields().length];
+			readArguments(input, layout, arguments);
 
-			Object[] returnEntries = invoke(arguments);
-
-			if (getOutputFields().length != 0 || passThroughFields.length != 0) {
-				String streamId = getOutputStreamId();
-				logger.debug("{} provides {} tuples to stream {}",
-						new Object[] {this, returnEntries.length, streamId});
-
-				for (Object returnEntry : returnEntries) {
-					Values output;
-					try {
-						output = getMapping(returnEntry);
-					} catch (Exception e) {
-						throw new InvocationTargetException(e);
-					}
-
-					for (String name : passThroughFields)
-						output.add(input.getValueByField(name));
-
-					logger.trace("Tuple emit");
-					if (doAnchor)
-						collector.emit(streamId, input, output);
-					else
-						collector.emit(streamId, output);
-				}
+			if (async) {
+				Invocation invocation = new Invocation(input, layout);
+				submit(invocation, pool == null ? call(arguments) : schedule(invocation, arguments));
+				return;
 			}
 
+			emit(input, layout, scatter(call(arguments)));
 			collector.ack(input);
 		} catch (InvocationTargetException e) {
 			collector.reportError(e.getCause());
@@ -101,8 +275,452 @@ public class SpringBolt extends SpringComponent implements ConfiguredBolt {
 		}
 	}
 
+	private void executeBatched(Tuple input) {
+		logger.trace("{} execute into batch", this);
+		if (batch.isEmpty())
+			batchStart = System.currentTimeMillis();
+		batch.add(input);
+
+		if (batch.size() >= batchSize
+				|| (batchTimeout > 0 && System.currentTimeMillis() - batchStart >= batchTimeout))
+			flush();
+	}
+
+	/**
+	 * Invokes the bean with the pending batch.
+	 * Each argument is a {@link List} with the respective field values in order of arrival.
+	 * The return should be a {@link List} or an array with an entry per input tuple.
+	 */
+	private void flush() {
+		List<Tuple> inputs = batch;
+		batch = new ArrayList<>(batchSize);
+		logger.debug("{} flushes a batch of {}", this, inputs.size());
+
+		int fieldCount = getInputFields().length;
+		List<List<Object>> argumentLists = new ArrayList<>(fieldCount);
+		for (int i = 0; i < fieldCount; ++i)
+			argumentLists.add(new ArrayList<>(inputs.size()));
+
+		InputLayout[] layouts = new InputLayout[inputs.size()];
+		Object[] values = new Object[fieldCount];
+		for (int i = 0; i < layouts.length; ++i) {
+			Tuple input = inputs.get(i);
+			layouts[i] = getInputLayout(input);
+			readArguments(input, layouts[i], values);
+			for (int j = fieldCount; --j >= 0; argumentLists.get(j).add(values[j]));
+		}
+		Object[] arguments = argumentLists.toArray();
+
+		if (pool != null) {
+			Invocation invocation = new Invocation(inputs, layouts);
+			submit(invocation, schedule(invocation, arguments));
+			return;
+		}
+
+		Object returnValue;
+		try {
+			returnValue = call(arguments);
+		} catch (InvocationTargetException e) {
+			collector.reportError(e.getCause());
+			for (Tuple input : inputs) collector.fail(input);
+			return;
+		} catch (IllegalAccessException e) {
+			throw new SecurityException(e);
+		}
+
+		if (async)
+			submit(new Invocation(inputs, layouts), returnValue);
+		else
+			complete(inputs, layouts, returnValue);
+	}
+
+	/**
+	 * Emits and acknowledges a batch.
+	 */
+	private void complete(List<Tuple> inputs, InputLayout[] layouts, Object returnValue) {
+		Object[] returnValues;
+		try {
+			returnValues = splitBatchReturn(returnValue, layouts.length);
+		} catch (IllegalStateException e) {
+			collector.reportError(e);
+			for (Tuple input : inputs) collector.fail(input);
+			return;
+		}
+
+		for (int i = 0; i < layouts.length; ++i) {
+			Tuple input = inputs.get(i);
+			try {
+				emit(input, layouts[i], scatter(returnValues[i]));
+				collector.ack(input);
+			} catch (InvocationTargetException e) {
+				collector.reportError(e.getCause());
+				collector.fail(input);
+			}
+		}
+	}
+
+	/**
+	 * Emits and acknowledges a single input.
+	 */
+	private void complete(Tuple input, InputLayout layout, Object returnValue) {
+		try {
+			emit(input, layout, scatter(returnValue));
+			collector.ack(input);
+		} catch (InvocationTargetException e) {
+			collector.reportError(e.getCause());
+			collector.fail(input);
+		}
+	}
+
+	/**
+	 * Registers a {@link CompletionStage} return.
+	 * Blocks while the in-flight limit is reached.
+	 */
+	private void submit(Invocation invocation, Object returnValue) {
+		++inFlight;
+		if (orderedCompletion) submitted.add(invocation);
+
+		if (returnValue instanceof CompletionStage)
+			((CompletionStage<?>) returnValue).whenComplete(invocation);
+		else
+			invocation.accept(returnValue, null);
+
+		drainCompletions();
+		while (inFlight >= maxInFlight && awaitCompletion());
+	}
+
+	/**
+	 * Runs the bean invocation on the {@link #setExecutor(String) executor}.
+	 * Invocations with the same {@link #setOrderingKey(String) ordering key} run one after another.
+	 */
+	private CompletionStage<Object> schedule(Invocation invocation, Object[] arguments) {
+		Supplier<Object> task = () -> {
+			try {
+				return call(arguments);
+			} catch (InvocationTargetException e) {
+				throw new CompletionException(e.getCause());
+			} catch (IllegalAccessException e) {
+				throw new CompletionException(new SecurityException(e));
+			}
+		};
+
+		Object key = null;
+		if (orderingKey != null && ! invocation.batched)
+			key = invocation.inputs.get(0).getValueByField(orderingKey);
+
+		CompletableFuture<Object> previous = key == null ? null : lanes.get(key);
+		CompletableFuture<Object> run;
+		if (previous == null)
+			run = CompletableFuture.supplyAsync(task, pool);
+		else
+			run = previous.handleAsync((result, error) -> task.get(), pool);
+
+		CompletableFuture<Object> stage = run.thenCompose(SpringBolt::flatten);
+		if (key != null) {
+			lanes.put(key, stage);
+			invocation.key = key;
+			invocation.lane = stage;
+		}
+		return stage;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static CompletionStage<Object> flatten(Object returnValue) {
+		if (returnValue instanceof CompletionStage)
+			return (CompletionStage<Object>) returnValue;
+		return CompletableFuture.completedFuture(returnValue);
+	}
+
+	/**
+	 * Processes all invocations completed so far.
+	 */
+	private void drainCompletions() {
+		for (Invocation done; (done = completions.poll()) != null; )
+			completed(done);
+	}
+
+	/**
+	 * Waits for an invocation to complete.
+	 * @return whether the wait was successful.
+	 */
+	private boolean awaitCompletion() {
+		logger.debug("{} awaits completion with {} invocations in flight", this, inFlight);
+		try {
+			completed(completions.take());
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void completed(Invocation invocation) {
+		if (! orderedCompletion) {
+			finish(invocation);
+			return;
+		}
+
+		invocation.done = true;
+		while (! submitted.isEmpty() && submitted.peek().done)
+			finish(submitted.poll());
+	}
+
+	private void finish(Invocation invocation) {
+		--inFlight;
+		if (invocation.key != null && lanes.get(invocation.key) == invocation.lane)
+			lanes.remove(invocation.key);
+
+		Throwable error = invocation.error;
+		if (error != null) {
+			if (error instanceof CompletionException && error.getCause() != null)
+				error = error.getCause();
+			ComponentMetric metric = getMetric();
+			if (metric != null) metric.failed(error);
+			collector.reportError(error);
+			for (Tuple input : invocation.inputs) collector.fail(input);
+			return;
+		}
+
+		if (invocation.batched)
+			complete(invocation.inputs, invocation.layouts, invocation.result);
+		else
+			complete(invocation.inputs.get(0), invocation.layouts[0], invocation.result);
+	}
+
+	private Object[] splitBatchReturn(Object returnValue, int inputCount) {
+		if (returnValue == null)
+			return new Object[inputCount];
+
+		Object[] entries = null;
+		if (returnValue instanceof Object[])
+			entries = (Object[]) returnValue;
+		if (returnValue instanceof List)
+			entries = ((List) returnValue).toArray();
+		if (entries == null || entries.length != inputCount) {
+			String msg = this + " batch return should have " + inputCount + " entries: " + returnValue;
+			throw new IllegalStateException(msg);
+		}
+		return entries;
+	}
+
+	private void readArguments(Tuple input, InputLayout layout, Object[] arguments) {
+		if (layout != null)
+			for (int i = arguments.length; --i >= 0;
+				arguments[i] = input.getValue(layout.arguments[i]));
+		else {
+			String[] inputFields = getInputFields();
+			for (int i = arguments.length; --i >= 0;
+				arguments[i] = input.getValueByField(inputFields[i]));
+		}
+	}
+
+	/**
+	 * Emits the return entries for an input tuple.
+	 */
+	private void emit(Tuple input, InputLayout layout, Iterator<?> returnEntries)
+	throws InvocationTargetException {
+		boolean defaultVoid = getLiveOutputFields().length == 0 && passThroughFields.length == 0;
+		if (defaultVoid && getRoutes().isEmpty())
+			return;
+
+		String streamId = getOutputStreamId();
+		EvaluationContext context = getEvaluationContext();
+		ComponentMetric metric = getMetric();
+		int count = 0;
+		while (true) {
+			Values output;
+			int route;
+			try {
+				if (! returnEntries.hasNext()) break;
+				Object returnEntry = returnEntries.next();
+				route = route(returnEntry, context);
+				if (route < 0 && defaultVoid) continue;
+				output = getMapping(returnEntry, route, context);
+			} catch (Exception e) {
+				if (metric != null) metric.failed(e);
+				throw new InvocationTargetException(e);
+			}
+
+			if (route >= 0) {
+				logger.trace("Routed tuple emit");
+				if (doAnchor)
+					collector.emit(getOutputStreamId(route), input, output);
+				else
+					collector.emit(getOutputStreamId(route), output);
+				++count;
+				continue;
+			}
+
+			if (layout != null)
+				for (int i : layout.passThrough)
+					output.add(input.getValue(i));
+			else
+				for (String name : passThroughFields)
+					output.add(input.getValueByField(name));
+
+			logger.trace("Tuple emit");
+			if (doAnchor)
+				collector.emit(streamId, input, output);
+			else
+				collector.emit(streamId, output);
+			++count;
+		}
+		if (metric != null) metric.emitted(count);
+		logger.debug("{} provided {} tuples to stream {}",
+				new Object[] {this, count, streamId});
+	}
+
 	@Override
 	public void cleanup() {
+		if (batch != null && ! batch.isEmpty()) {
+			logger.info("{} flushes the remaining batch on cleanup", this);
+			flush();
+		}
+
+		if (async) {
+			drainCompletions();
+			if (inFlight != 0)
+				logger.warn("{} abandons {} invocations in flight", this, inFlight);
+		}
+
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Requests tick tuples for batch timeouts and for asynchronous completions.
+	 */
+	@Override
+	public Map<String,Object> getComponentConfiguration() {
+		Map<String,Object> config = super.getComponentConfiguration();
+		int seconds = 0;
+		if (batchSize > 1 && batchTimeout > 0)
+			seconds = (int) Math.max(1, (batchTimeout + 999) / 1000);
+		else if (hasText(executor) || CompletionStage.class.isAssignableFrom(getReturnType()))
+			seconds = 1;
+
+		if (seconds != 0) {
+			if (config == null) config = new HashMap<>();
+			config = TupleUtils.putTickFrequencyIntoComponentConfig(config, seconds);
+		}
+		return config;
+	}
+
+	/**
+	 * Gets whether each input is completed within {@link #execute(Tuple)},
+	 * i.e., without batches nor asynchronous completion.
+	 */
+	public boolean isSynchronous() {
+		return batchSize <= 1 && ! hasText(executor)
+				&& ! CompletionStage.class.isAssignableFrom(getReturnType());
+	}
+
+	/**
+	 * Batch returns have an entry per input tuple.
+	 */
+	@Override
+	protected Type getEntryType(Type returnType) {
+		if (batchSize <= 1) return super.getEntryType(returnType);
+		Type type = returnType;
+		if (type instanceof ParameterizedType
+				&& CompletionStage.class.isAssignableFrom((Class<?>) ((ParameterizedType) type).getRawType()))
+			type = getElementType(type);
+		return super.getEntryType(getElementType(type));
+	}
+
+	/**
+	 * Gets the number of tuples per invocation.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Sets the number of tuples per invocation. Values above one enable batch mode
+	 * in which the bean method receives a {@link List} per input field.
+	 */
+	public void setBatchSize(int value) {
+		batchSize = value;
+	}
+
+	/**
+	 * Gets the maximum number of milliseconds a tuple may wait for its batch to fill up.
+	 */
+	public long getBatchTimeout() {
+		return batchTimeout;
+	}
+
+	/**
+	 * Sets the maximum number of milliseconds a tuple may wait for its batch to fill up.
+	 * Batches are also flushed on each tick tuple.
+	 */
+	public void setBatchTimeout(long value) {
+		batchTimeout = value;
+	}
+
+	/**
+	 * Gets the maximum number of pending {@link CompletionStage} returns.
+	 */
+	public int getMaxInFlight() {
+		return maxInFlight;
+	}
+
+	/**
+	 * Sets the maximum number of pending {@link CompletionStage} returns.
+	 * Execution blocks when the limit is reached.
+	 */
+	public void setMaxInFlight(int value) {
+		maxInFlight = value;
+	}
+
+	/**
+	 * Gets whether {@link CompletionStage} returns are emitted in order of invocation.
+	 */
+	public boolean getOrderedCompletion() {
+		return orderedCompletion;
+	}
+
+	/**
+	 * Sets whether {@link CompletionStage} returns are emitted in order of invocation
+	 * rather than in order of completion.
+	 */
+	public void setOrderedCompletion(boolean value) {
+		orderedCompletion = value;
+	}
+
+	/**
+	 * Gets the invocation thread setup.
+	 */
+	public String getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Sets the invocation thread setup, which is either "virtual" or a thread count.
+	 * Bean invocations run on a pool instead of the executor thread and up to
+	 * {@link #setMaxInFlight(int) max in flight} may be pending. Virtual threads fall back
+	 * to a pool with a thread per in-flight invocation on runtimes without support.
+	 * The bean must be thread-safe.
+	 */
+	public void setExecutor(String value) {
+		executor = value;
+	}
+
+	/**
+	 * Gets the input field name which serializes {@link #setExecutor(String) executor} invocations.
+	 */
+	public String getOrderingKey() {
+		return orderingKey;
+	}
+
+	/**
+	 * Sets the input field name which serializes {@link #setExecutor(String) executor} invocations.
+	 * Tuples with an equal value are invoked one after another in order of arrival.
+	 */
+	public void setOrderingKey(String value) {
+		orderingKey = value;
 	}
 
 	/**
@@ -127,6 +745,121 @@ public class SpringBolt extends SpringComponent implements ConfiguredBolt {
 		passThroughFields = value;
 	}
 
+	@Override
+	public StreamGrouping getGrouping() {
+		return grouping;
+	}
+
+	/**
+	 * Sets the input distribution policy.
+	 */
+	public void setGrouping(StreamGrouping value) {
+		grouping = value;
+	}
+
+	@Override
+	public String[] getGroupingFields() {
+		return groupingFields;
+	}
+
+	/**
+	 * Sets the field names for {@link StreamGrouping#FIELDS fields grouping}.
+	 */
+	public void setGroupingFields(String... value) {
+		groupingFields = value;
+	}
+
+	/**
+	 * Gets the bean method which recombines partial results.
+	 */
+	public String getMergeSignature() {
+		return mergeSignature;
+	}
+
+	/**
+	 * Sets the bean method which recombines the partial results of a
+	 * {@link StreamGrouping#PARTIAL_KEY partial key grouping}. The method
+	 * receives the partial output per key and its return replaces the output fields.
+	 * The partial output doesn't identify the source task, so this bolt should
+	 * emit deltas, e.g., an increment rather than a running total.
+	 */
+	public void setMergeSignature(String value) {
+		mergeSignature = value;
+		mergeBolt = null;
+	}
+
+	@Override
+	public SpringBolt getMergeBolt() {
+		if (mergeSignature == null) return null;
+		SpringBolt merge = mergeBolt;
+		if (merge == null) {
+			merge = new SpringBolt(beanType, mergeSignature, getOutputFields());
+			merge.setId(getId() + "-merge");
+			merge.setOutputStreamId(getOutputStreamId());
+			merge.setParallelism(getParallelism());
+			merge.setBeanResolution(getBeanResolution());
+			merge.setDoAnchor(doAnchor);
+			merge.setGrouping(StreamGrouping.FIELDS);
+			merge.setGroupingFields(groupingFields);
+			mergeBolt = merge;
+		}
+		return merge;
+	}
+
+	/**
+	 * Field indices for a source stream.
+	 */
+	private static final class InputLayout {
+
+		final String componentId, streamId;
+		final int[] arguments, passThrough;
+
+		InputLayout(String componentId, String streamId, int[] arguments, int[] passThrough) {
+			this.componentId = componentId;
+			this.streamId = streamId;
+			this.arguments = arguments;
+			this.passThrough = passThrough;
+		}
+
+	}
+
+	/**
+	 * Pending {@link CompletionStage} return.
+	 * Completion is handed over to the executor thread.
+	 */
+	private final class Invocation implements BiConsumer<Object,Throwable> {
+
+		final List<Tuple> inputs;
+		final InputLayout[] layouts;
+		final boolean batched;
+
+		Object result;
+		Throwable error;
+		boolean done;
+		Object key;
+		CompletableFuture<Object> lane;
+
+		Invocation(Tuple input, InputLayout layout) {
+			this.inputs = Collections.singletonList(input);
+			this.layouts = new InputLayout[] {layout};
+			this.batched = false;
+		}
+
+		Invocation(List<Tuple> inputs, InputLayout[] layouts) {
+			this.inputs = inputs;
+			this.layouts = layouts;
+			this.batched = true;
+		}
+
+		@Override
+		public void accept(Object result, Throwable error) {
+			this.result = result;
+			this.error = error;
+			completions.add(this);
+		}
+
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder buffer = new StringBuilder("[bolt '");
@@ -1,5 +1,6 @@
 package eu.icolumbo.breeze;
 
+import org.apache.storm.Config;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
 import org.apache.storm.tuple.Fields;
@@ -8,16 +9,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
 import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.BaseStream;
 
 import static org.apache.storm.utils.Utils.DEFAULT_STREAM_ID;
 import static org.springframework.expression.spel.SpelMessage.PROPERTY_OR_FIELD_NOT_READABLE;
@@ -31,7 +49,8 @@ import static org.springframework.expression.spel.SpelMessage.PROPERTY_OR_FIELD_
 public abstract class SpringComponent implements ConfiguredComponent, ApplicationContextAware {
 
 	private static final Logger logger = LoggerFactory.getLogger(SpringComponent.class);
-	private static final SpelExpressionParser expressionParser = new SpelExpressionParser();
+	private static final SpelExpressionParser expressionParser =
+			new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, null));
 	private static final long serialVersionUID = 3;
 	static final Values[] EMPTY_ARRAY = {};
 
@@ -40,15 +59,24 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 	private final FunctionSignature inputSignature;
 	private final String[] outputFields;
 	private final Map<String,String> outputBindingDefinitions = new HashMap<>();
-	private final Map<String,Expression> outputBinding = new HashMap<>();
+	private String[] prunedFields = {};
+	private final List<StreamRoute> routes = new ArrayList<>();
 
 	private String outputStreamId;
 	private boolean scatterOutput;
 	private Number parallelism;
+	private BeanResolution beanResolution = BeanResolution.SCOPE;
+	private boolean metrics = true;
+	private int metricSampling = 8;
 
 	private transient String id;
 	private transient ApplicationContext spring;
-	private transient Method method;
+	private transient Object bean;
+	private transient MethodInvoker method;
+	private transient volatile FieldBinding[] outputBinding;
+	private transient volatile Route[] routeBinding;
+	private transient EvaluationContext evaluationContext;
+	private transient ComponentMetric metric;
 
 
 	/**
@@ -67,20 +95,45 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 	 * Instantiates the non-serializable state.
 	 */
 	protected void init(Map stormConf, TopologyContext topologyContext) {
-		setId(topologyContext.getThisComponentId());
+		if (id == null)
+			setId(topologyContext.getThisComponentId());
 
 		try {
-			method = inputSignature.findMethod(beanType);
-			logger.info("{} uses {}", this, method.toGenericString());
+			method = MethodInvoker.of(inputSignature.findMethod(beanType));
+			logger.info("{} uses {}", this, method);
 		} catch (ReflectiveOperationException e) {
 			throw new IllegalStateException("Unusable input signature", e);
 		}
+		outputBinding = compileBinding(getLiveOutputFields());
+		routeBinding = compileRoutes();
 
 		if (spring == null)
 			spring = SingletonApplicationContext.get(stormConf, topologyContext);
 
-		spring.getBean(beanType);
+		Object instance = spring.getBean(beanType);
 		logger.debug("Bean lookup successful");
+
+		bean = null;
+		if (beanResolution.reuse(spring, beanType)) {
+			logger.debug("{} reuses the {} instance", this, beanType.getName());
+			bean = instance;
+		}
+
+		metric = null;
+		if (metrics) {
+			metric = new ComponentMetric(metricSampling);
+			Object bucket = stormConf.get(Config.TOPOLOGY_BUILTIN_METRICS_BUCKET_SIZE_SECS);
+			int bucketSeconds = bucket instanceof Number ? ((Number) bucket).intValue() : 60;
+			topologyContext.registerMetric("breeze-" + getId(), metric, bucketSeconds);
+		}
+	}
+
+	/**
+	 * Gets the statistics.
+	 * @return the registration or {@code null} when disabled.
+	 */
+	protected ComponentMetric getMetric() {
+		return metric;
 	}
 
 	/**
@@ -89,10 +142,23 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 	@Override
 	public void declareOutputFields(OutputFieldsDeclarer declarer) {
 		String streamId = getOutputStreamId();
-		Fields names = new Fields(outputFields);
+		Fields names = new Fields(getLiveOutputFields());
 		logger.info("{} declares {} for stream '{}'",
 				new Object[] {this, names, streamId});
 		declarer.declareStream(streamId, names);
+		declareRoutes(declarer);
+	}
+
+	/**
+	 * Registers the {@link #getRoutes() routed streams}.
+	 */
+	protected void declareRoutes(OutputFieldsDeclarer declarer) {
+		for (StreamRoute route : routes) {
+			Fields names = new Fields(route.getOutputFields());
+			logger.info("{} declares {} for stream '{}'",
+					new Object[] {this, names, route.getStreamId()});
+			declarer.declareStream(route.getStreamId(), names);
+		}
 	}
 
 	@Override
@@ -105,8 +171,33 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 	 */
 	protected Object[] invoke(Object[] arguments)
 	throws InvocationTargetException, IllegalAccessException {
-		Object returnValue = invoke(method, arguments);
+		return getReturnEntries(call(arguments));
+	}
 
+	/**
+	 * Gets the bean invocation return value for the input signature.
+	 */
+	protected Object call(Object[] arguments)
+	throws InvocationTargetException, IllegalAccessException {
+		ComponentMetric metric = this.metric;
+		if (metric == null) return invoke(method, arguments);
+
+		long start = metric.sample() ? System.nanoTime() : -1;
+		try {
+			return invoke(method, arguments);
+		} catch (InvocationTargetException e) {
+			metric.failed(e.getCause());
+			throw e;
+		} finally {
+			metric.invoked(start < 0 ? -1 : Math.max(System.nanoTime() - start, 0));
+		}
+	}
+
+	/**
+	 * Gets the entries to emit for a return value.
+	 * @see #scatter(Object)
+	 */
+	protected Object[] getReturnEntries(Object returnValue) {
 		if (! scatterOutput) {
 			logger.trace("Using return as is");
 			return new Object[] {returnValue};
@@ -122,22 +213,71 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 			return ((Collection) returnValue).toArray();
 		}
 
+		List<Object> entries = new ArrayList<>();
+		for (Iterator<?> i = scatter(returnValue); i.hasNext(); entries.add(i.next()));
+		return entries.toArray();
+	}
+
+	/**
+	 * Gets the entries to emit for a return value one at a time.
+	 * With scatter enabled arrays (including primitive ones), {@link Iterable iterables},
+	 * {@link Iterator iterators} and {@link BaseStream streams} are consumed lazily.
+	 */
+	protected Iterator<?> scatter(Object returnValue) {
+		if (! scatterOutput) {
+			logger.trace("Using return as is");
+			return Collections.singletonList(returnValue).iterator();
+		}
+
+		if (returnValue == null) {
+			logger.trace("Scatter null return");
+			return Collections.emptyIterator();
+		}
+
+		if (returnValue instanceof Object[]) {
+			logger.trace("Scatter array return");
+			return Arrays.asList((Object[]) returnValue).iterator();
+		}
+
+		if (returnValue instanceof Iterable) {
+			logger.trace("Scatter iterable return");
+			return ((Iterable<?>) returnValue).iterator();
+		}
+
+		if (returnValue instanceof Iterator) {
+			logger.trace("Scatter iterator return");
+			return (Iterator<?>) returnValue;
+		}
+
+		if (returnValue instanceof BaseStream) {
+			logger.trace("Scatter stream return");
+			return new StreamIterator((BaseStream<?,?>) returnValue);
+		}
+
+		if (returnValue.getClass().isArray()) {
+			logger.trace("Scatter primitive array return");
+			return new PrimitiveArrayIterator(returnValue);
+		}
+
 		logger.debug("Scatter singleton return");
-		return returnValue == null ? EMPTY_ARRAY : new Object[] {returnValue};
+		return Collections.singletonList(returnValue).iterator();
 	}
 
 	/**
 	 * Gets the bean invocation return value.
 	 */
-	protected Object invoke(Method method, Object[] arguments)
+	protected Object invoke(MethodInvoker method, Object[] arguments)
 	throws InvocationTargetException, IllegalAccessException {
-		logger.trace("Lookup for call {}", method);
-		Object bean = spring.getBean(beanType);
+		Object bean = this.bean;
+		if (bean == null) {
+			logger.trace("Lookup for call {}", method);
+			bean = spring.getBean(beanType);
+		}
 
 		try {
 			return method.invoke(bean, arguments);
 		} catch (IllegalArgumentException e) {
-			StringBuilder msg = new StringBuilder(method.toGenericString());
+			StringBuilder msg = new StringBuilder(method.toString());
 			msg.append(" invoked with incompatible arguments:");
 			for (Object a : arguments) {
 				msg.append(' ');
@@ -152,18 +292,226 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 	}
 
 	protected Values getMapping(Object returnEntry) {
-		return new Values(mapOutputFields(returnEntry, outputFields));
+		return getMapping(returnEntry, getEvaluationContext());
+	}
+
+	/**
+	 * Gets the output with a dedicated SpEL setup for use on other threads.
+	 */
+	protected Values getMapping(Object returnEntry, EvaluationContext context) {
+		FieldBinding[] binding = outputBinding;
+		if (binding == null)
+			outputBinding = binding = compileBinding(getLiveOutputFields());
+		return map(returnEntry, binding, context);
+	}
+
+	/**
+	 * Gets the output for a {@link #route(Object, EvaluationContext) route}.
+	 * @param route the index or -1 for the default output stream.
+	 */
+	protected Values getMapping(Object returnEntry, int route, EvaluationContext context) {
+		if (route < 0) return getMapping(returnEntry, context);
+		return map(returnEntry, getRouteBinding()[route].binding, context);
+	}
+
+	private Values map(Object returnEntry, FieldBinding[] binding, EvaluationContext context) {
+		ComponentMetric metric = this.metric;
+		if (metric == null || ! metric.sample())
+			return new Values(mapOutputFields(returnEntry, binding, context));
+
+		long start = System.nanoTime();
+		Values output = new Values(mapOutputFields(returnEntry, binding, context));
+		metric.mapped(Math.max(System.nanoTime() - start, 0));
+		return output;
+	}
+
+	/**
+	 * Gets the first {@link #getRoutes() route} which matches a return entry.
+	 * @return the index or -1 for the default output stream.
+	 */
+	protected int route(Object returnEntry, EvaluationContext context) {
+		if (routes.isEmpty()) return -1;
+		Route[] options = getRouteBinding();
+		for (int i = 0; i < options.length; ++i)
+			if (options[i].matches(returnEntry, context))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Gets the Storm identifier for a {@link #route(Object, EvaluationContext) route}.
+	 * @param route the index or -1 for the default output stream.
+	 */
+	protected String getOutputStreamId(int route) {
+		if (route < 0) return getOutputStreamId();
+		return routes.get(route).getStreamId();
+	}
+
+	private Route[] getRouteBinding() {
+		Route[] binding = routeBinding;
+		if (binding == null)
+			routeBinding = binding = compileRoutes();
+		return binding;
+	}
+
+	private Route[] compileRoutes() {
+		Route[] binding = new Route[routes.size()];
+		for (int i = 0; i < binding.length; ++i) {
+			StreamRoute route = routes.get(i);
+			String[] fields = route.getOutputFields();
+			Class<?> entryType = route.getEntryType();
+			Expression condition = null;
+			if (route.getCondition() != null)
+				condition = expressionParser.parseExpression(route.getCondition());
+			String rootField = fields.length == 1 ? fields[0] : null;
+			binding[i] = new Route(entryType, condition, compileBinding(fields,
+					entryType == null ? getReturnEntryType() : entryType, rootField));
+		}
+		return binding;
+	}
+
+	/**
+	 * Resolves the bindings for fields.
+	 * @param fields the names.
+	 * @return the bindings in order of appearance.
+	 */
+	protected FieldBinding[] compileBinding(String[] fields) {
+		String rootField = outputFields.length == 1 ? outputFields[0] : null;
+		return compileBinding(fields, getReturnEntryType(), rootField);
+	}
+
+	/**
+	 * @param rootField the name which gets the return entry as is, if any.
+	 */
+	private FieldBinding[] compileBinding(String[] fields, Class<?> entryType, String rootField) {
+		FieldBinding[] binding = new FieldBinding[fields.length];
+		for (int i = 0; i < fields.length; ++i)
+			binding[i] = getOutputBinding(fields[i], entryType, rootField);
+		return binding;
+	}
+
+	/**
+	 * Gets the declared type of return entries.
+	 */
+	private Class<?> getReturnEntryType() {
+		if (method == null) return Object.class;
+		Class<?> type = getReturnType();
+		if (CompletionStage.class.isAssignableFrom(type)) return Object.class;
+		if (! scatterOutput) return type;
+		if (! type.isArray() || type.getComponentType().isPrimitive()) return Object.class;
+		return type.getComponentType();
+	}
+
+	/**
+	 * Gets the declared return type of the bean method.
+	 * Available before {@link #init(Map, TopologyContext) initialization} too.
+	 */
+	protected Class<?> getReturnType() {
+		MethodInvoker method = this.method;
+		if (method != null)
+			return method.getMethod().getReturnType();
+		try {
+			return inputSignature.findMethod(beanType).getReturnType();
+		} catch (ReflectiveOperationException e) {
+			logger.debug("{} return type unknown: {}", this, e.getMessage());
+			return Object.class;
+		}
+	}
+
+	/**
+	 * Gets the declared types of the emitted field values, as far as these can be
+	 * inferred from the bean method. Expression bindings are not inferred.
+	 * Available before {@link #init(Map, TopologyContext) initialization} too.
+	 */
+	public Set<Class<?>> getOutputTypes() {
+		Set<Class<?>> types = new LinkedHashSet<>();
+		Type returnType;
+		try {
+			returnType = inputSignature.findMethod(beanType).getGenericReturnType();
+		} catch (ReflectiveOperationException e) {
+			logger.debug("{} return type unknown: {}", this, e.getMessage());
+			return types;
+		}
+		Class<?> entryType = toClass(getEntryType(returnType));
+
+		String rootField = outputFields.length == 1 ? outputFields[0] : null;
+		for (String field : getLiveOutputFields())
+			addOutputType(types, field, entryType, rootField);
+		for (StreamRoute route : routes) {
+			String[] fields = route.getOutputFields();
+			Class<?> routeType = route.getEntryType() == null ? entryType : route.getEntryType();
+			for (String field : fields)
+				addOutputType(types, field, routeType, fields.length == 1 ? fields[0] : null);
+		}
+		return types;
+	}
+
+	private void addOutputType(Set<Class<?>> types, String field, Class<?> entryType, String rootField) {
+		if (outputBindingDefinitions.containsKey(field)) return;
+		Class<?> type = null;
+		if (field.equals(rootField))
+			type = entryType;
+		else if (entryType != Object.class && ! Map.class.isAssignableFrom(entryType))
+			type = FieldBinding.resolveType(entryType, field);
+		if (type != null && type != Object.class)
+			types.add(type);
+	}
+
+	/**
+	 * Gets the declared type of return entries, including type arguments.
+	 * @param returnType the bean method's declaration.
+	 */
+	protected Type getEntryType(Type returnType) {
+		Type type = returnType;
+		if (CompletionStage.class.isAssignableFrom(toClass(type)))
+			type = getElementType(type);
+		if (! scatterOutput) return type;
+		return getElementType(type);
+	}
+
+	/**
+	 * Gets the declared type of array, {@link Iterable}, {@link Iterator},
+	 * {@link BaseStream stream} or {@link CompletionStage} elements.
+	 * @return the type or {@code Object.class} when unknown.
+	 */
+	protected static Type getElementType(Type type) {
+		if (type instanceof GenericArrayType)
+			return ((GenericArrayType) type).getGenericComponentType();
+		if (type instanceof Class)
+			return ((Class<?>) type).isArray() ? ((Class<?>) type).getComponentType() : Object.class;
+		if (type instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+			Class<?> raw = toClass(type);
+			boolean container = Iterable.class.isAssignableFrom(raw) || Iterator.class.isAssignableFrom(raw)
+					|| BaseStream.class.isAssignableFrom(raw) || CompletionStage.class.isAssignableFrom(raw);
+			if (container && arguments.length >= 1)
+				return arguments[0];
+		}
+		return Object.class;
+	}
+
+	private static Class<?> toClass(Type type) {
+		if (type instanceof Class)
+			return (Class<?>) type;
+		if (type instanceof ParameterizedType)
+			return toClass(((ParameterizedType) type).getRawType());
+		if (type instanceof GenericArrayType)
+			return Array.newInstance(toClass(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		if (type instanceof WildcardType)
+			return toClass(((WildcardType) type).getUpperBounds()[0]);
+		return Object.class;
 	}
 
-	protected Object[] mapOutputFields(Object returnEntry, String[] fields) {
-		StandardEvaluationContext context = new StandardEvaluationContext(returnEntry);
+	protected Object[] mapOutputFields(Object returnEntry, FieldBinding[] binding) {
+		return mapOutputFields(returnEntry, binding, getEvaluationContext());
+	}
 
-		int i = fields.length;
+	protected Object[] mapOutputFields(Object returnEntry, FieldBinding[] binding, EvaluationContext context) {
+		int i = binding.length;
 		Object[] output = new Object[i];
 		while (--i >= 0) {
 			try {
-				Expression spel = getOutputBinding(fields[i]);
-				output[i] = spel.getValue(context);
+				output[i] = binding[i].read(returnEntry, context);
 			} catch (SpelEvaluationException e) {
 				if (e.getMessageCode() != PROPERTY_OR_FIELD_NOT_READABLE)
 					throw e;
@@ -174,6 +522,16 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 		return output;
 	}
 
+	/**
+	 * Gets the SpEL setup for use on the component's thread.
+	 */
+	protected EvaluationContext getEvaluationContext() {
+		EvaluationContext context = evaluationContext;
+		if (context == null)
+			evaluationContext = context = new StandardEvaluationContext();
+		return context;
+	}
+
 	@Override
 	public String getOutputStreamId() {
 		String value = outputStreamId;
@@ -203,12 +561,71 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 		return outputFields;
 	}
 
+	/**
+	 * Gets the output field names which are actually emitted, i.e.,
+	 * without the {@link #setPrunedFields(String...) pruned ones}.
+	 */
+	public String[] getLiveOutputFields() {
+		if (prunedFields.length == 0) return outputFields;
+		List<String> live = new ArrayList<>(Arrays.asList(outputFields));
+		live.removeAll(Arrays.asList(prunedFields));
+		return live.toArray(new String[live.size()]);
+	}
+
+	/**
+	 * Gets the output field names which are neither evaluated nor emitted.
+	 */
+	public String[] getPrunedFields() {
+		return prunedFields;
+	}
+
+	/**
+	 * Sets the output field names which are neither evaluated nor emitted,
+	 * as no component consumes them.
+	 */
+	public void setPrunedFields(String... value) {
+		for (String name : value)
+			if (! Arrays.asList(outputFields).contains(name))
+				throw new IllegalArgumentException("'" + name + "' is not an output field");
+		prunedFields = value;
+		outputBinding = null;
+	}
+
+	/**
+	 * Gets the additional output streams.
+	 */
+	public List<StreamRoute> getRoutes() {
+		return Collections.unmodifiableList(routes);
+	}
+
+	/**
+	 * Sets the additional output streams. Each return entry is emitted to the
+	 * first route which matches or to the {@link #getOutputStreamId() default
+	 * output stream} otherwise.
+	 */
+	public void setRoutes(List<StreamRoute> value) {
+		routes.clear();
+		for (StreamRoute route : value)
+			addRoute(route);
+	}
+
+	/**
+	 * Registers an additional output stream.
+	 * @see #setRoutes(List)
+	 */
+	public void addRoute(StreamRoute value) {
+		for (StreamRoute route : routes)
+			if (route.getStreamId().equals(value.getStreamId()))
+				throw new IllegalArgumentException("duplicate stream '" + value.getStreamId() + "'");
+		routes.add(value);
+		routeBinding = null;
+	}
+
 	/**
 	 * Sets expressions per field.
 	 * @see #putOutputBinding(String, String)
 	 */
 	public void setOutputBinding(Map<String,String> value) {
-		outputBinding.clear();
 		outputBindingDefinitions.clear();
 		for (Map.Entry<String,String> entry : value.entrySet())
 			putOutputBinding(entry.getKey(), entry.getValue());
@@ -221,23 +638,25 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 	 */
 	public void putOutputBinding(String field, String expression) {
 		outputBindingDefinitions.put(field, expression);
+		outputBinding = null;
+		routeBinding = null;
 	}
 
-	private Expression getOutputBinding(String field) {
-		Expression binding = outputBinding.get(field);
-		if (binding == null) {
-			String definition = outputBindingDefinitions.get(field);
-			if (definition == null) {
-				if (outputFields.length == 1 && outputFields[0].equals(field))
-					definition = "#root";
-				else
-					definition = "#root?." + field;
-			}
+	private FieldBinding getOutputBinding(String field, Class<?> entryType, String rootField) {
+		String definition = outputBindingDefinitions.get(field);
+		if (definition != null) {
 			logger.debug("Field {} bound as #{{}}", field, definition);
-			binding = expressionParser.parseExpression(definition);
-			outputBinding.put(field, binding);
+			return FieldBinding.expression(expressionParser.parseExpression(definition));
 		}
-		return binding;
+
+		if (field.equals(rootField)) {
+			logger.debug("Field {} bound as return value", field);
+			return FieldBinding.root();
+		}
+
+		logger.debug("Field {} bound as property of {}", field, entryType.getName());
+		Expression fallback = expressionParser.parseExpression("#root?." + field);
+		return FieldBinding.property(field, entryType, fallback);
 	}
 
 	/**
@@ -256,6 +675,53 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 		scatterOutput = value;
 	}
 
+	/**
+	 * Gets the bean instance lookup policy.
+	 */
+	public BeanResolution getBeanResolution() {
+		return beanResolution;
+	}
+
+	/**
+	 * Sets the bean instance lookup policy.
+	 * The default {@link BeanResolution#SCOPE} reuses singletons only.
+	 */
+	public void setBeanResolution(BeanResolution value) {
+		beanResolution = value;
+	}
+
+	/**
+	 * Gets whether the component registers a {@link ComponentMetric}.
+	 */
+	public boolean getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets whether the component registers a {@link ComponentMetric}
+	 * as "breeze-" followed by the identifier.
+	 */
+	public void setMetrics(boolean value) {
+		metrics = value;
+	}
+
+	/**
+	 * Gets the metric timing interval.
+	 */
+	public int getMetricSampling() {
+		return metricSampling;
+	}
+
+	/**
+	 * Sets the metric timing interval, i.e., one in every N invocations
+	 * and mappings is timed. Counts are always exact.
+	 */
+	public void setMetricSampling(int value) {
+		if (value < 1)
+			throw new IllegalArgumentException("metric sampling " + value);
+		metricSampling = value;
+	}
+
 	@Override
 	public Number getParallelism() {
 		return parallelism;
@@ -281,6 +747,92 @@ public abstract class SpringComponent implements ConfiguredComponent, Applicatio
 	@Override
 	public void setApplicationContext(ApplicationContext value) {
 		spring = value;
+		bean = null;
+	}
+
+
+	/**
+	 * Closes the stream once exhausted.
+	 */
+	private static final class StreamIterator implements Iterator<Object> {
+
+		private final BaseStream<?,?> stream;
+		private final Iterator<?> entries;
+		private boolean closed;
+
+		StreamIterator(BaseStream<?,?> stream) {
+			this.stream = stream;
+			this.entries = stream.iterator();
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (closed) return false;
+			if (entries.hasNext()) return true;
+			closed = true;
+			stream.close();
+			return false;
+		}
+
+		@Override
+		public Object next() {
+			if (closed) throw new NoSuchElementException();
+			return entries.next();
+		}
+
+	}
+
+
+	/**
+	 * Boxes one element at a time.
+	 */
+	private static final class PrimitiveArrayIterator implements Iterator<Object> {
+
+		private final Object array;
+		private final int length;
+		private int index;
+
+		PrimitiveArrayIterator(Object array) {
+			this.array = array;
+			this.length = Array.getLength(array);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < length;
+		}
+
+		@Override
+		public Object next() {
+			if (index >= length) throw new NoSuchElementException();
+			return Array.get(array, index++);
+		}
+
+	}
+
+
+	/**
+	 * Compiled {@link StreamRoute}.
+	 */
+	private static final class Route {
+
+		final Class<?> entryType;
+		final Expression condition;
+		final FieldBinding[] binding;
+
+		Route(Class<?> entryType, Expression condition, FieldBinding[] binding) {
+			this.entryType = entryType;
+			this.condition = condition;
+			this.binding = binding;
+		}
+
+		boolean matches(Object returnEntry, EvaluationContext context) {
+			if (entryType != null && ! entryType.isInstance(returnEntry))
+				return false;
+			return condition == null
+					|| Boolean.TRUE.equals(condition.getValue(context, returnEntry, Boolean.class));
+		}
+
 	}
 
 }
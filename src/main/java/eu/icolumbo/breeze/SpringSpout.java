@@ -1,16 +1,29 @@
 package eu.icolumbo.breeze;
 
+import org.apache.storm.Config;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.spout.SpoutOutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.tuple.Values;
-import org.apache.storm.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
@@ -22,12 +35,41 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 
 	private static final Logger logger = LoggerFactory.getLogger(SpringSpout.class);
 	private static final long serialVersionUID = 8;
+	private static final long STALL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final int PREFETCH_ERROR_CAPACITY = 64;
 
 	private SpoutOutputCollector collector;
 
 	private final Map<Class<? extends Exception>,Long> delayExceptions = new HashMap<>();
 	private FunctionSignature ackSignature, failSignature;
-	private transient Method ackMethod, failMethod;
+	private int emitBudget;
+	private double backoffMultiplier = 1;
+	private long maxBackoff;
+	private double backoffJitter;
+	private IdleStrategy idleStrategy = IdleStrategy.SPIN;
+	private long idleDelay = 1;
+	private int prefetchThreads;
+	private int prefetchCapacity = 1024;
+	private int transactionBatchSize = 1;
+	private long transactionBatchTimeout;
+	private int maxReplays;
+	private long[] replayDelays = {1000};
+	private int replayCapacity = 10000;
+	private transient MethodInvoker ackMethod, failMethod;
+	private transient FieldBinding[] ackBinding, failBinding;
+	private transient Iterator<?> pending;
+	private transient boolean backoff;
+	private transient long backoffUntil, backoffDelay;
+	private transient RingBuffer<Prefetch> prefetchBuffer;
+	private transient Queue<Throwable> prefetchErrors;
+	private transient Queue<Prefetch> prefetchDropped;
+	private transient Thread[] prefetchers;
+	private transient volatile boolean prefetching;
+	private transient AtomicLong prefetchDrops, prefetchStallNanos, prefetchErrorDrops;
+	private transient List<Object[]> ackBatch, failBatch;
+	private transient long ackBatchStart, failBatchStart;
+	private transient Queue<Replay> replayQueue;
+	private transient int replayCount;
 
 
 	public SpringSpout(Class<?> beanType, String invocation, String... outputFields) {
@@ -42,62 +84,275 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 
 		try {
 			if (ackSignature != null) {
-				ackMethod = ackSignature.findMethod(beanType);
+				ackMethod = MethodInvoker.of(ackSignature.findMethod(beanType));
 				logger.info("{} uses {} for transaction acknowledgement",
-						this, ackMethod.toGenericString());
+						this, ackMethod);
+				ackBinding = compileBinding(ackSignature.getArguments());
 			}
 			if (failSignature != null) {
-				failMethod = failSignature.findMethod(beanType);
+				failMethod = MethodInvoker.of(failSignature.findMethod(beanType));
 				logger.info("{} uses {} for transaction failures",
-						this, failMethod.toGenericString());
+						this, failMethod);
+				failBinding = compileBinding(failSignature.getArguments());
 			}
 		} catch (ReflectiveOperationException e) {
 			throw new IllegalStateException("Unusable transaction signature", e);
 		}
+
+		if (maxReplays > 0) {
+			logger.info("{} replays failed tuples up to {} times with {} tuples in memory",
+					new Object[] {this, maxReplays, replayCapacity});
+			replayQueue = new PriorityQueue<>();
+			replayCount = 0;
+		}
+
+		if (transactionBatchSize > 1) {
+			if (ackSignature != null)
+				ackBatch = new ArrayList<>(transactionBatchSize);
+			if (failSignature != null)
+				failBatch = new ArrayList<>(transactionBatchSize);
+		}
+
+		if (prefetchThreads > 0)
+			startPrefetch(stormConf, topologyContext);
+	}
+
+	/**
+	 * Launches the background reads.
+	 */
+	private void startPrefetch(Map<?,?> stormConf, TopologyContext topologyContext) {
+		prefetchBuffer = new RingBuffer<>(prefetchCapacity);
+		prefetchErrors = new ArrayBlockingQueue<>(PREFETCH_ERROR_CAPACITY);
+		prefetchDropped = new ConcurrentLinkedQueue<>();
+		prefetchDrops = new AtomicLong();
+		prefetchStallNanos = new AtomicLong();
+		prefetchErrorDrops = new AtomicLong();
+
+		Object bucket = stormConf.get(Config.TOPOLOGY_BUILTIN_METRICS_BUCKET_SIZE_SECS);
+		int bucketSeconds = bucket instanceof Number ? ((Number) bucket).intValue() : 60;
+		topologyContext.registerMetric("breeze-prefetch", new PrefetchMetric(), bucketSeconds);
+
+		logger.info("{} prefetches with {} threads into a buffer of {}",
+				new Object[] {this, prefetchThreads, prefetchBuffer.capacity()});
+		prefetching = true;
+		prefetchers = new Thread[prefetchThreads];
+		for (int i = 0; i < prefetchers.length; ++i) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					prefetch();
+				}
+			}, "breeze-" + getId() + "-prefetch-" + i);
+			thread.setDaemon(true);
+			prefetchers[i] = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * Background read loop.
+	 */
+	private void prefetch() {
+		EvaluationContext context = new StandardEvaluationContext();
+		ComponentMetric metric = getMetric();
+		long delay = 0;
+		while (prefetching) {
+			Object returnValue;
+			try {
+				returnValue = call(EMPTY_ARRAY);
+				delay = 0;
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				Long initialDelay = getDelay(cause.getClass());
+				if (initialDelay == null) {
+					prefetchError(cause);
+					pauseAfterError();
+					continue;
+				}
+				delay = nextBackoff(delay, initialDelay);
+				logger.debug("{} triggers a {}ms prefetch backoff", cause.getClass().getSimpleName(), delay);
+				long pause = jitter(delay);
+				if (metric != null) metric.backedOff(pause);
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pause));
+				continue;
+			} catch (IllegalAccessException e) {
+				prefetchError(new SecurityException(e));
+				return;
+			}
+
+			int count = 0;
+			try {
+				for (Iterator<?> i = scatter(returnValue); i.hasNext(); ++count) {
+					Object returnEntry = i.next();
+					int route = route(returnEntry, context);
+					put(new Prefetch(getOutputStreamId(route), getMapping(returnEntry, route, context),
+							newMessageId(returnEntry, context)));
+				}
+			} catch (Exception e) {
+				if (metric != null) metric.failed(e);
+				prefetchError(e);
+			}
+			if (metric != null) metric.emitted(count);
+			if (count == 0 || returnValue == null)
+				idleStrategy.idle(idleDelay);
+		}
+	}
+
+	/**
+	 * Queues an error for the spout thread, unless too many are pending already.
+	 */
+	private void prefetchError(Throwable e) {
+		if (! prefetchErrors.offer(e))
+			prefetchErrorDrops.incrementAndGet();
+	}
+
+	/**
+	 * Holds back reads after an error, like Storm's wait strategy
+	 * does for a spout which doesn't emit.
+	 */
+	private void pauseAfterError() {
+		LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(idleDelay, 1)));
+	}
+
+	/**
+	 * Waits for buffer space.
+	 */
+	private void put(Prefetch entry) {
+		if (prefetchBuffer.offer(entry)) return;
+
+		long start = System.nanoTime();
+		while (! prefetchBuffer.offer(entry)) {
+			if (! prefetching) {
+				prefetchDropped.add(entry);
+				return;
+			}
+			LockSupport.parkNanos(STALL_PARK_NANOS);
+		}
+		prefetchStallNanos.addAndGet(System.nanoTime() - start);
+	}
+
+	private void emitPrefetched() {
+		for (Throwable e; (e = prefetchErrors.poll()) != null; )
+			collector.reportError(e);
+		long errorDrops = prefetchErrorDrops.getAndSet(0);
+		if (errorDrops != 0)
+			logger.warn("{} suppressed {} prefetch errors", this, errorDrops);
+
+		int limit = emitBudget > 0 ? emitBudget : prefetchBuffer.capacity();
+		int count = 0;
+		for (Prefetch entry; count < limit && (entry = prefetchBuffer.poll()) != null; ++count)
+			emit(entry.streamId, entry.output, entry.messageId);
+		logger.debug("{} provided {} prefetched tuples", this, count);
+
+		if (count == 0) {
+			logger.trace("{} idle", this);
+			idleStrategy.idle(idleDelay);
+		}
+	}
+
+	private void stopPrefetch() {
+		prefetching = false;
+		for (Thread thread : prefetchers) {
+			thread.interrupt();
+			try {
+				thread.join(1000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		prefetchers = null;
+
+		for (Prefetch entry; (entry = prefetchBuffer.poll()) != null; )
+			drop(entry);
+		for (Prefetch entry; (entry = prefetchDropped.poll()) != null; )
+			drop(entry);
+		logger.info("{} stopped prefetching with {} drops", this, prefetchDrops.get());
+	}
+
+	/**
+	 * Discards a read which was not emitted. Transactions are failed.
+	 */
+	private void drop(Prefetch entry) {
+		prefetchDrops.incrementAndGet();
+		if (entry.messageId != null)
+			failTransaction(entry.messageId);
 	}
 
 	@Override
 	public void nextTuple() {
 		logger.trace("{} next", this);
+		if ((ackBatch != null || failBatch != null) && transactionBatchTimeout > 0)
+			flushExpiredTransactions();
+
+		if (replayQueue != null && ! replayQueue.isEmpty() && emitReplays())
+			return;
+
+		if (prefetchBuffer != null) {
+			emitPrefetched();
+			return;
+		}
+
+		if (backoff) {
+			if (System.nanoTime() - backoffUntil < 0) {
+				logger.trace("{} skips invocation during backoff", this);
+				return;
+			}
+			backoff = false;
+		}
+
 		try {
-			Object[] returnEntries = invoke(EMPTY_ARRAY);
-			String streamId = getOutputStreamId();
-			logger.debug("{} provides {} tuples to stream {}",
-					new Object[] {this, returnEntries.length, streamId});
+			boolean nullReturn = false;
+			Iterator<?> returnEntries = pending;
+			pending = null;
+			if (returnEntries == null || ! hasNext(returnEntries)) {
+				Object returnValue = call(EMPTY_ARRAY);
+				backoffDelay = 0;
+				nullReturn = returnValue == null;
+				returnEntries = scatter(returnValue);
+			} else {
+				logger.trace("{} resumes a partial emit", this);
+			}
 
-			for (Object returnEntry : returnEntries) {
+			EvaluationContext context = getEvaluationContext();
+			ComponentMetric metric = getMetric();
+			int count = 0;
+			while (hasNext(returnEntries)) {
+				if (count == emitBudget && emitBudget > 0) {
+					logger.trace("{} emit budget reached", this);
+					pending = returnEntries;
+					break;
+				}
+
+				Object returnEntry;
+				int route;
 				Values output;
 				try {
-					output = getMapping(returnEntry);
+					returnEntry = returnEntries.next();
+					route = route(returnEntry, context);
+					output = getMapping(returnEntry, route, context);
 				} catch (Exception e) {
+					if (metric != null) metric.failed(e);
 					throw new InvocationTargetException(e);
 				}
+				++count;
 
-				if (failSignature == null && ackSignature == null) {
-					logger.trace("Tuple emit");
-					collector.emit(streamId, output);
-					continue;
-				}
-
-				logger.trace("Transactional tuple emit");
-				TransactionContext messageId = new TransactionContext();
-				if (failSignature != null)
-					messageId.setFailParams(mapOutputFields(returnEntry, failSignature.getArguments()));
-				if (ackSignature != null)
-					messageId.setAckParams(mapOutputFields(returnEntry, ackSignature.getArguments()));
+				emit(getOutputStreamId(route), output, newMessageId(returnEntry, context));
+			}
+			if (metric != null) metric.emitted(count);
+			logger.debug("{} provided {} tuples", this, count);
 
-				collector.emit(streamId, output, messageId);
+			if (count == 0 || nullReturn) {
+				logger.trace("{} idle", this);
+				idleStrategy.idle(idleDelay);
 			}
 		} catch (InvocationTargetException e) {
 			Throwable cause = e.getCause();
 			Class<? extends Throwable> causeType = cause.getClass();
-			for (Map.Entry<Class<? extends Exception>,Long> option : delayExceptions.entrySet()) {
-				if (option.getKey().isAssignableFrom(causeType)) {
-					Long delay = option.getValue();
-					logger.info("{} triggers a {}ms delay", causeType.getSimpleName(), delay);
-					Utils.sleep(delay);
-					return;
-				}
+			Long initialDelay = getDelay(causeType);
+			if (initialDelay != null) {
+				startBackoff(causeType, initialDelay);
+				return;
 			}
 
 			collector.reportError(cause);
@@ -106,8 +361,123 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 		}
 	}
 
+	/**
+	 * Emits with replay tracking when enabled and within capacity.
+	 * @param transaction the message ID or {@code null} for none.
+	 */
+	private void emit(String streamId, Values output, TransactionContext transaction) {
+		if (replayQueue != null && replayCount < replayCapacity) {
+			logger.trace("Replayable tuple emit");
+			++replayCount;
+			collector.emit(streamId, output, new Replay(streamId, output, transaction));
+		} else if (transaction != null) {
+			logger.trace("Transactional tuple emit");
+			collector.emit(streamId, output, transaction);
+		} else {
+			logger.trace("Tuple emit");
+			collector.emit(streamId, output);
+		}
+	}
+
+	/**
+	 * Emits the failed tuples which are due.
+	 * @return whether any tuples were emitted.
+	 */
+	private boolean emitReplays() {
+		long now = System.currentTimeMillis();
+		int count = 0;
+		for (Replay replay; (replay = replayQueue.peek()) != null && replay.due <= now; ++count) {
+			if (emitBudget > 0 && count == emitBudget) break;
+			replayQueue.poll();
+			logger.trace("Tuple replay {}", replay.attempts);
+			collector.emit(replay.streamId, replay.output, replay);
+		}
+		if (count != 0)
+			logger.debug("{} replayed {} tuples", this, count);
+		return count != 0;
+	}
+
+	/**
+	 * Gets the transaction for a return entry.
+	 * @return the message ID or {@code null} when not transactional.
+	 */
+	private TransactionContext newMessageId(Object returnEntry, EvaluationContext context) {
+		if (failSignature == null && ackSignature == null) return null;
+
+		Object[] failParams = null, ackParams = null;
+		if (failSignature != null)
+			failParams = mapOutputFields(returnEntry, failBinding, context);
+		if (ackSignature != null)
+			ackParams = mapOutputFields(returnEntry, ackBinding, context);
+		return TransactionContext.of(ackParams, failParams);
+	}
+
+	/**
+	 * Gets the {@link #putDelayException(Class, long) delay} for an exception.
+	 * @return the number of milliseconds or {@code null} when not applicable.
+	 */
+	private Long getDelay(Class<? extends Throwable> causeType) {
+		for (Map.Entry<Class<? extends Exception>,Long> option : delayExceptions.entrySet())
+			if (option.getKey().isAssignableFrom(causeType))
+				return option.getValue();
+		return null;
+	}
+
+	/**
+	 * Suspends invocation without blocking the spout thread.
+	 */
+	private void startBackoff(Class<?> causeType, long initialDelay) {
+		backoffDelay = nextBackoff(backoffDelay, initialDelay);
+		long delay = jitter(backoffDelay);
+		logger.info("{} triggers a {}ms backoff", causeType.getSimpleName(), delay);
+		ComponentMetric metric = getMetric();
+		if (metric != null) metric.backedOff(delay);
+		backoffUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+		backoff = true;
+	}
+
+	/**
+	 * Consecutive failures grow the delay with the {@link #setBackoffMultiplier(double) multiplier}.
+	 * @param previous the last delay or zero for none.
+	 */
+	private long nextBackoff(long previous, long initialDelay) {
+		long delay = initialDelay;
+		if (previous != 0)
+			delay = (long) (previous * backoffMultiplier);
+		if (maxBackoff > 0 && delay > maxBackoff)
+			delay = maxBackoff;
+		return delay;
+	}
+
+	private long jitter(long delay) {
+		if (backoffJitter <= 0) return delay;
+		return delay - (long) (delay * backoffJitter * ThreadLocalRandom.current().nextDouble());
+	}
+
+	private static boolean hasNext(Iterator<?> returnEntries) throws InvocationTargetException {
+		try {
+			return returnEntries.hasNext();
+		} catch (RuntimeException e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
 	@Override
 	public void close() {
+		if (prefetchers != null)
+			stopPrefetch();
+		if (replayQueue != null && ! replayQueue.isEmpty()) {
+			logger.warn("{} abandons {} pending replays", this, replayQueue.size());
+			for (Replay replay; (replay = replayQueue.poll()) != null; ) {
+				--replayCount;
+				if (replay.transaction != null)
+					failTransaction(replay.transaction);
+			}
+		}
+		flushTransactions();
+		pending = null;
+		backoff = false;
+		backoffDelay = 0;
 	}
 
 	@Override
@@ -116,17 +486,37 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 
 	@Override
 	public void deactivate() {
+		flushTransactions();
 	}
 
 	@Override
 	public void ack(Object o) {
+		if (o instanceof Replay) {
+			--replayCount;
+			o = ((Replay) o).transaction;
+			if (o == null) return;
+		}
+
 		if (! (o instanceof TransactionContext)) {
 			logger.warn("Ack with unknown message ID: {}", o);
 			return;
 		}
+		if (ackSignature == null) {
+			logger.trace("Ack without signature");
+			return;
+		}
 		TransactionContext context = (TransactionContext) o;
 		Object[] values = context.getAckParams();
 		logger.trace("Ack with: {}", values);
+		if (ackBatch != null) {
+			if (ackBatch.isEmpty())
+				ackBatchStart = System.currentTimeMillis();
+			ackBatch.add(values);
+			if (ackBatch.size() >= transactionBatchSize)
+				flushAcks();
+			return;
+		}
+
 		try {
 			invoke(ackMethod, values);
 		} catch (Exception e) {
@@ -136,13 +526,49 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 
 	@Override
 	public void fail(Object o) {
+		if (o instanceof Replay) {
+			Replay replay = (Replay) o;
+			if (replay.attempts < maxReplays && replayQueue != null) {
+				long delay = replayDelays[Math.min(replay.attempts, replayDelays.length - 1)];
+				logger.trace("Replay scheduled in {}ms", delay);
+				replay.due = System.currentTimeMillis() + delay;
+				++replay.attempts;
+				replayQueue.add(replay);
+				return;
+			}
+
+			logger.debug("Replays exhausted after {} attempts", replay.attempts);
+			--replayCount;
+			o = replay.transaction;
+			if (o == null) return;
+		}
+
 		if (! (o instanceof TransactionContext)) {
 			logger.warn("Fail with unknown message ID: {}", o);
 			return;
 		}
-		TransactionContext context = (TransactionContext) o;
+		failTransaction((TransactionContext) o);
+	}
+
+	/**
+	 * Notifies the fail signature, possibly batched.
+	 */
+	private void failTransaction(TransactionContext context) {
+		if (failSignature == null) {
+			logger.trace("Fail without signature");
+			return;
+		}
 		Object[] values = context.getFailParams();
 		logger.trace("Fail with: {}", values);
+		if (failBatch != null) {
+			if (failBatch.isEmpty())
+				failBatchStart = System.currentTimeMillis();
+			failBatch.add(values);
+			if (failBatch.size() >= transactionBatchSize)
+				flushFails();
+			return;
+		}
+
 		try {
 			invoke(failMethod, values);
 		} catch (Exception e) {
@@ -150,6 +576,61 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 		}
 	}
 
+	private void flushExpiredTransactions() {
+		boolean acks = ackBatch != null && ! ackBatch.isEmpty();
+		boolean fails = failBatch != null && ! failBatch.isEmpty();
+		if (! acks && ! fails) return;
+
+		long now = System.currentTimeMillis();
+		if (acks && now - ackBatchStart >= transactionBatchTimeout)
+			flushAcks();
+		if (fails && now - failBatchStart >= transactionBatchTimeout)
+			flushFails();
+	}
+
+	/**
+	 * Invokes all pending transaction notifications.
+	 */
+	private void flushTransactions() {
+		if (ackBatch != null && ! ackBatch.isEmpty()) flushAcks();
+		if (failBatch != null && ! failBatch.isEmpty()) flushFails();
+	}
+
+	private void flushAcks() {
+		logger.debug("{} acks a batch of {}", this, ackBatch.size());
+		try {
+			invoke(ackMethod, toArgumentLists(ackBatch, ackSignature));
+		} catch (Exception e) {
+			logger.error("Ack notification abort", e);
+		}
+		ackBatch.clear();
+	}
+
+	private void flushFails() {
+		logger.debug("{} fails a batch of {}", this, failBatch.size());
+		try {
+			invoke(failMethod, toArgumentLists(failBatch, failSignature));
+		} catch (Exception e) {
+			logger.error("Fail notification abort", e);
+		}
+		failBatch.clear();
+	}
+
+	/**
+	 * Transposes the arguments into a {@link List} per parameter.
+	 */
+	private static Object[] toArgumentLists(List<Object[]> batch, FunctionSignature signature) {
+		int parameterCount = signature.getArguments().length;
+		Object[] lists = new Object[parameterCount];
+		for (int i = 0; i < parameterCount; ++i) {
+			List<Object> values = new ArrayList<>(batch.size());
+			for (Object[] arguments : batch)
+				values.add(arguments[i]);
+			lists[i] = values;
+		}
+		return lists;
+	}
+
 	/**
 	 * Sets the method for transaction acknowledgement.
 	 */
@@ -164,6 +645,132 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 		failSignature = FunctionSignature.valueOf(value);
 	}
 
+	/**
+	 * Gets the maximum number of tuples per {@link #nextTuple()}.
+	 */
+	public int getEmitBudget() {
+		return emitBudget;
+	}
+
+	/**
+	 * Sets the maximum number of tuples per {@link #nextTuple()}, with zero for no limit.
+	 * The remainder of a {@link #setScatterOutput(boolean) scattered} return is emitted
+	 * on the following calls before the bean is invoked again.
+	 */
+	public void setEmitBudget(int value) {
+		emitBudget = value;
+	}
+
+	/**
+	 * Gets the number of background read threads.
+	 */
+	public int getPrefetchThreads() {
+		return prefetchThreads;
+	}
+
+	/**
+	 * Sets the number of background read threads, with zero for reads on the spout thread.
+	 * Prefetch threads invoke the bean and map the output into a buffer which
+	 * {@link #nextTuple()} drains up to the {@link #setEmitBudget(int) emit budget}.
+	 * The bean must be thread-safe.
+	 */
+	public void setPrefetchThreads(int value) {
+		prefetchThreads = value;
+	}
+
+	/**
+	 * Gets the minimum number of prefetched tuples to buffer.
+	 */
+	public int getPrefetchCapacity() {
+		return prefetchCapacity;
+	}
+
+	/**
+	 * Sets the minimum number of prefetched tuples to buffer, rounded up to a power of two.
+	 * Prefetch threads wait when the buffer is full.
+	 */
+	public void setPrefetchCapacity(int value) {
+		prefetchCapacity = value;
+	}
+
+	/**
+	 * Gets the number of acks or fails per transaction method invocation.
+	 */
+	public int getTransactionBatchSize() {
+		return transactionBatchSize;
+	}
+
+	/**
+	 * Sets the number of acks or fails per transaction method invocation.
+	 * Values above one pass a {@link List} per parameter to the ack and fail methods.
+	 * Pending notifications are also flushed on {@link #deactivate()} and {@link #close()}.
+	 */
+	public void setTransactionBatchSize(int value) {
+		transactionBatchSize = value;
+	}
+
+	/**
+	 * Gets the maximum number of milliseconds an ack or fail may wait for its batch.
+	 */
+	public long getTransactionBatchTimeout() {
+		return transactionBatchTimeout;
+	}
+
+	/**
+	 * Sets the maximum number of milliseconds an ack or fail may wait for its batch,
+	 * with zero for no limit. The timeout is checked on each {@link #nextTuple()}.
+	 */
+	public void setTransactionBatchTimeout(long value) {
+		transactionBatchTimeout = value;
+	}
+
+	/**
+	 * Gets the maximum number of times a failed tuple is emitted again.
+	 */
+	public int getMaxReplays() {
+		return maxReplays;
+	}
+
+	/**
+	 * Sets the maximum number of times a failed tuple is emitted again, with zero to disable.
+	 * The {@link #setFailSignature(String) fail method} is invoked once the replays are exhausted.
+	 */
+	public void setMaxReplays(int value) {
+		maxReplays = value;
+	}
+
+	/**
+	 * Gets the number of milliseconds to wait per replay attempt.
+	 */
+	public long[] getReplayDelays() {
+		return replayDelays;
+	}
+
+	/**
+	 * Sets the number of milliseconds to wait per replay attempt.
+	 * The last delay applies to any further attempts.
+	 */
+	public void setReplayDelays(long... value) {
+		if (value.length == 0)
+			throw new IllegalArgumentException("no replay delays");
+		replayDelays = value;
+	}
+
+	/**
+	 * Gets the maximum number of replayable tuples in memory.
+	 */
+	public int getReplayCapacity() {
+		return replayCapacity;
+	}
+
+	/**
+	 * Sets the maximum number of replayable tuples in memory.
+	 * Tuples emitted beyond the capacity don't replay.
+	 */
+	public void setReplayCapacity(int value) {
+		replayCapacity = value;
+	}
+
 	/**
 	 * Sets the delays per exception.
 	 * @see #putDelayException(Class, long)
@@ -177,14 +784,146 @@ public class SpringSpout extends SpringComponent implements ConfiguredSpout {
 	/**
 	 * Registers a delay for an exception.
 	 * When the invocation on the bean fails with a matching exception then
-	 * {@link #nextTuple()} gets extended with {@link Utils#sleep(long)}.
+	 * {@link #nextTuple()} skips the bean for the delay (backoff).
 	 * @param type the criteria.
-	 * @param delay the number of milliseconds.
+	 * @param delay the initial number of milliseconds.
 	 */
 	public void putDelayException(Class<? extends Exception> type, long delay) {
 		delayExceptions.put(type, delay);
 	}
 
+	/**
+	 * Gets the backoff growth factor for consecutive failures.
+	 */
+	public double getBackoffMultiplier() {
+		return backoffMultiplier;
+	}
+
+	/**
+	 * Sets the backoff growth factor for consecutive failures.
+	 * The default of one keeps the {@link #putDelayException(Class, long) delays} fixed.
+	 */
+	public void setBackoffMultiplier(double value) {
+		backoffMultiplier = value;
+	}
+
+	/**
+	 * Gets the backoff limit in milliseconds.
+	 */
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	/**
+	 * Sets the backoff limit in milliseconds, with zero for no limit.
+	 */
+	public void setMaxBackoff(long value) {
+		maxBackoff = value;
+	}
+
+	/**
+	 * Gets the random reduction ratio for backoffs.
+	 */
+	public double getBackoffJitter() {
+		return backoffJitter;
+	}
+
+	/**
+	 * Sets the random reduction ratio for backoffs, in the range [0, 1].
+	 */
+	public void setBackoffJitter(double value) {
+		backoffJitter = value;
+	}
+
+	/**
+	 * Gets the wait policy for when there's nothing to emit.
+	 */
+	public IdleStrategy getIdleStrategy() {
+		return idleStrategy;
+	}
+
+	/**
+	 * Sets the wait policy for when the bean returns {@code null} or nothing to emit.
+	 */
+	public void setIdleStrategy(IdleStrategy value) {
+		idleStrategy = value;
+	}
+
+	/**
+	 * Gets the number of milliseconds for the {@link IdleStrategy#PARK park} and
+	 * {@link IdleStrategy#SLEEP sleep} strategies.
+	 */
+	public long getIdleDelay() {
+		return idleDelay;
+	}
+
+	/**
+	 * Sets the number of milliseconds for the {@link IdleStrategy#PARK park} and
+	 * {@link IdleStrategy#SLEEP sleep} strategies.
+	 */
+	public void setIdleDelay(long value) {
+		idleDelay = value;
+	}
+
+	/**
+	 * Background read result.
+	 */
+	private static final class Prefetch {
+
+		final String streamId;
+		final Values output;
+		final TransactionContext messageId;
+
+		Prefetch(String streamId, Values output, TransactionContext messageId) {
+			this.streamId = streamId;
+			this.output = output;
+			this.messageId = messageId;
+		}
+
+	}
+
+
+	/**
+	 * Message ID for replay tracking.
+	 */
+	private static final class Replay implements Comparable<Replay> {
+
+		final String streamId;
+		final Values output;
+		final TransactionContext transaction;
+		int attempts;
+		long due;
+
+		Replay(String streamId, Values output, TransactionContext transaction) {
+			this.streamId = streamId;
+			this.output = output;
+			this.transaction = transaction;
+		}
+
+		@Override
+		public int compareTo(Replay other) {
+			return Long.compare(due, other.due);
+		}
+
+	}
+
+
+	/**
+	 * Buffer occupancy, drops and the number of milliseconds prefetch threads waited on a full buffer.
+	 */
+	private final class PrefetchMetric implements IMetric {
+
+		@Override
+		public Object getValueAndReset() {
+			Map<String,Object> values = new HashMap<>();
+			values.put("occupancy", prefetchBuffer.size());
+			values.put("drops", prefetchDrops.getAndSet(0));
+			values.put("stallMillis", TimeUnit.NANOSECONDS.toMillis(prefetchStallNanos.getAndSet(0)));
+			return values;
+		}
+
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder buffer = new StringBuilder("[spout '");
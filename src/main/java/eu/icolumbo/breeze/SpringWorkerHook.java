@@ -0,0 +1,32 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.hooks.BaseWorkerHook;
+import org.apache.storm.task.WorkerTopologyContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+
+/**
+ * Loads the {@link SingletonApplicationContext Spring setup} on worker start,
+ * rather than on the first component's prepare or open.
+ * Failures are left for the components to report.
+ */
+public class SpringWorkerHook extends BaseWorkerHook {
+
+	private static final Logger logger = LoggerFactory.getLogger(SpringWorkerHook.class);
+	private static final long serialVersionUID = 1;
+
+
+	@Override
+	public void start(Map stormConf, WorkerTopologyContext context) {
+		logger.debug("Application context warm-up on worker start");
+		try {
+			SingletonApplicationContext.get(stormConf);
+		} catch (RuntimeException e) {
+			logger.warn("Application context warm-up failed", e);
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.topology.BoltDeclarer;
+import org.apache.storm.tuple.Fields;
+
+
+/**
+ * Tuple distribution policies for {@link ConfiguredBolt bolt} inputs.
+ * @see <a href="http://github.com/nathanmarz/storm/wiki/Concepts#stream-groupings">Storm Wiki</a>
+ */
+public enum StreamGrouping {
+
+	/**
+	 * Leaves the distribution up to Storm.
+	 */
+	NONE {
+		@Override
+		public void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields) {
+			declarer.noneGrouping(componentId, streamId);
+		}
+	},
+
+	/**
+	 * Sends tuples with equal grouping field values to the same task.
+	 */
+	FIELDS {
+		@Override
+		public void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields) {
+			declarer.fieldsGrouping(componentId, streamId, new Fields(fields));
+		}
+	},
+
+	/**
+	 * Sends tuples with equal grouping field values to the least loaded of two tasks.
+	 * Hot keys are split over two tasks, which emit partial results.
+	 */
+	PARTIAL_KEY {
+		@Override
+		public void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields) {
+			declarer.partialKeyGrouping(componentId, streamId, new Fields(fields));
+		}
+	},
+
+	/**
+	 * Distributes tuples randomly with an equal number per task.
+	 */
+	SHUFFLE {
+		@Override
+		public void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields) {
+			declarer.shuffleGrouping(componentId, streamId);
+		}
+	},
+
+	/**
+	 * Prefers tasks in the same worker process and shuffles otherwise.
+	 */
+	LOCAL_OR_SHUFFLE {
+		@Override
+		public void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields) {
+			declarer.localOrShuffleGrouping(componentId, streamId);
+		}
+	},
+
+	/**
+	 * Replicates tuples to all tasks.
+	 */
+	ALL {
+		@Override
+		public void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields) {
+			declarer.allGrouping(componentId, streamId);
+		}
+	},
+
+	/**
+	 * Sends all tuples to the task with the lowest ID.
+	 */
+	GLOBAL {
+		@Override
+		public void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields) {
+			declarer.globalGrouping(componentId, streamId);
+		}
+	};
+
+
+	/**
+	 * Subscribes a bolt to a stream.
+	 * @param fields the grouping field names, if any.
+	 */
+	public abstract void declare(BoltDeclarer declarer, String componentId, String streamId, String... fields);
+
+}
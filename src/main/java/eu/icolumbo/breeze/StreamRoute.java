@@ -0,0 +1,85 @@
+package eu.icolumbo.breeze;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+
+/**
+ * Named output stream for the return entries of a {@link SpringComponent}
+ * which match a type and a SpEL condition.
+ * @see SpringComponent#setRoutes(java.util.List)
+ */
+public class StreamRoute implements Serializable {
+
+	private static final long serialVersionUID = 1;
+
+	private final String streamId;
+	private final String[] outputFields;
+	private Class<?> entryType;
+	private String condition;
+
+
+	/**
+	 * @param streamId the Storm identifier.
+	 * @param outputFields the names.
+	 */
+	public StreamRoute(String streamId, String... outputFields) {
+		this.streamId = streamId;
+		this.outputFields = outputFields;
+	}
+
+	/**
+	 * Gets the Storm identifier.
+	 */
+	public String getStreamId() {
+		return streamId;
+	}
+
+	/**
+	 * Gets the field names.
+	 */
+	public String[] getOutputFields() {
+		return outputFields;
+	}
+
+	/**
+	 * Gets the required return entry type, if any.
+	 */
+	public Class<?> getEntryType() {
+		return entryType;
+	}
+
+	/**
+	 * Sets the required return entry type.
+	 * Field bindings resolve their properties on this type.
+	 */
+	public void setEntryType(Class<?> value) {
+		entryType = value;
+	}
+
+	/**
+	 * Gets the SpEL predicate on the return entry, if any.
+	 */
+	public String getCondition() {
+		return condition;
+	}
+
+	/**
+	 * Sets the SpEL predicate on the return entry.
+	 */
+	public void setCondition(String value) {
+		condition = value;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder("[stream '");
+		buffer.append(streamId).append("' ").append(Arrays.toString(outputFields));
+		if (entryType != null)
+			buffer.append(" for ").append(entryType.getName());
+		if (condition != null)
+			buffer.append(" if #{").append(condition).append('}');
+		return buffer.append(']').toString();
+	}
+
+}
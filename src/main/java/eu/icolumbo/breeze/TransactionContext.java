@@ -1,23 +1,152 @@
 package eu.icolumbo.breeze;
 
+import java.util.Arrays;
+
+
+/**
+ * Spout message ID with the transaction method arguments.
+ * @see #of(Object[], Object[])
+ */
 public class TransactionContext {
 
-    private Object[] failParams;
-    private Object[] ackParams;
+	private Object[] failParams;
+	private Object[] ackParams;
+
+
+	/**
+	 * Gets a compact instance. A single {@code long} or {@code int} key is kept
+	 * as a primitive and identical ack and fail arguments are shared.
+	 * @param ackParams the ack method arguments or {@code null} for none.
+	 * @param failParams the fail method arguments or {@code null} for none.
+	 */
+	public static TransactionContext of(Object[] ackParams, Object[] failParams) {
+		Object key = getSingleKey(ackParams, failParams);
+		byte flags = (byte) ((ackParams != null ? PrimitiveKey.ACK : 0) | (failParams != null ? PrimitiveKey.FAIL : 0));
+		if (key instanceof Long)
+			return new LongKey((Long) key, flags);
+		if (key instanceof Integer)
+			return new IntKey((Integer) key, flags);
+
+		TransactionContext result = new TransactionContext();
+		result.ackParams = ackParams;
+		result.failParams = Arrays.equals(ackParams, failParams) ? ackParams : failParams;
+		return result;
+	}
+
+	/**
+	 * Gets the one argument which both signatures have in common.
+	 * @return the value or {@code null} when not applicable.
+	 */
+	private static Object getSingleKey(Object[] ackParams, Object[] failParams) {
+		if (ackParams == null && failParams == null) return null;
+		if (ackParams != null && ackParams.length != 1) return null;
+		if (failParams != null && failParams.length != 1) return null;
+
+		Object key = ackParams != null ? ackParams[0] : failParams[0];
+		if (key == null) return null;
+		if (ackParams != null && failParams != null && ! key.equals(failParams[0]))
+			return null;
+		return key;
+	}
+
+	public Object[] getFailParams() {
+		return failParams;
+	}
+
+	public void setFailParams(Object[] failParams) {
+		this.failParams = failParams;
+	}
+
+	public Object[] getAckParams() {
+		return ackParams;
+	}
+
+	public void setAckParams(Object[] ackParams) {
+		this.ackParams = ackParams;
+	}
+
+
+	/**
+	 * Single key with lazy argument arrays. Setters switch to regular arrays.
+	 */
+	abstract static class PrimitiveKey extends TransactionContext {
+
+		static final byte ACK = 1, FAIL = 2;
+
+		final byte flags;
+		boolean materialized;
+
+		PrimitiveKey(byte flags) {
+			this.flags = flags;
+		}
+
+		abstract Object getKey();
+
+		@Override
+		public Object[] getFailParams() {
+			if (materialized) return super.getFailParams();
+			return (flags & FAIL) == 0 ? null : new Object[] {getKey()};
+		}
+
+		@Override
+		public void setFailParams(Object[] failParams) {
+			materialize();
+			super.setFailParams(failParams);
+		}
+
+		@Override
+		public Object[] getAckParams() {
+			if (materialized) return super.getAckParams();
+			return (flags & ACK) == 0 ? null : new Object[] {getKey()};
+		}
+
+		@Override
+		public void setAckParams(Object[] ackParams) {
+			materialize();
+			super.setAckParams(ackParams);
+		}
+
+		private void materialize() {
+			if (materialized) return;
+			super.setAckParams(getAckParams());
+			super.setFailParams(getFailParams());
+			materialized = true;
+		}
+
+	}
+
+
+	static final class LongKey extends PrimitiveKey {
+
+		final long key;
+
+		LongKey(long key, byte flags) {
+			super(flags);
+			this.key = key;
+		}
+
+		@Override
+		Object getKey() {
+			return key;
+		}
+
+	}
+
+
+	static final class IntKey extends PrimitiveKey {
+
+		final int key;
 
-    public Object[] getFailParams() {
-        return failParams;
-    }
+		IntKey(int key, byte flags) {
+			super(flags);
+			this.key = key;
+		}
 
-    public void setFailParams(Object[] failParams) {
-        this.failParams = failParams;
-    }
+		@Override
+		Object getKey() {
+			return key;
+		}
 
-    public Object[] getAckParams() {
-        return ackParams;
-    }
+	}
 
-    public void setAckParams(Object[] ackParams) {
-        this.ackParams = ackParams;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package eu.icolumbo.breeze;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.storm.Config;
+
+
+/**
+ * Kryo setup for {@link TransactionContext message IDs}.
+ * @see #register(Config)
+ */
+public class TransactionContextSerializer extends Serializer<TransactionContext> {
+
+	private static final byte GENERIC = 0, SHARED = 1, LONG_KEY = 2, INT_KEY = 3;
+
+
+	/**
+	 * Registers all {@link TransactionContext} variants.
+	 */
+	public static void register(Config config) {
+		config.registerSerialization(TransactionContext.class, TransactionContextSerializer.class);
+		config.registerSerialization(TransactionContext.LongKey.class, TransactionContextSerializer.class);
+		config.registerSerialization(TransactionContext.IntKey.class, TransactionContextSerializer.class);
+	}
+
+	@Override
+	public void write(Kryo kryo, Output output, TransactionContext context) {
+		boolean materialized = context instanceof TransactionContext.PrimitiveKey
+				&& ((TransactionContext.PrimitiveKey) context).materialized;
+		if (context instanceof TransactionContext.LongKey && ! materialized) {
+			TransactionContext.LongKey key = (TransactionContext.LongKey) context;
+			output.writeByte(LONG_KEY);
+			output.writeByte(key.flags);
+			output.writeLong(key.key, false);
+			return;
+		}
+		if (context instanceof TransactionContext.IntKey && ! materialized) {
+			TransactionContext.IntKey key = (TransactionContext.IntKey) context;
+			output.writeByte(INT_KEY);
+			output.writeByte(key.flags);
+			output.writeInt(key.key, false);
+			return;
+		}
+
+		Object[] ackParams = context.getAckParams();
+		Object[] failParams = context.getFailParams();
+		if (ackParams != null && ackParams == failParams) {
+			output.writeByte(SHARED);
+			writeParams(kryo, output, ackParams);
+			return;
+		}
+		output.writeByte(GENERIC);
+		writeParams(kryo, output, ackParams);
+		writeParams(kryo, output, failParams);
+	}
+
+	@Override
+	public TransactionContext read(Kryo kryo, Input input, Class<TransactionContext> type) {
+		byte variant = input.readByte();
+		switch (variant) {
+			case LONG_KEY:
+				byte longFlags = input.readByte();
+				return new TransactionContext.LongKey(input.readLong(false), longFlags);
+			case INT_KEY:
+				byte intFlags = input.readByte();
+				return new TransactionContext.IntKey(input.readInt(false), intFlags);
+			case SHARED:
+				Object[] params = readParams(kryo, input);
+				TransactionContext shared = new TransactionContext();
+				shared.setAckParams(params);
+				shared.setFailParams(params);
+				return shared;
+			case GENERIC:
+				TransactionContext result = new TransactionContext();
+				result.setAckParams(readParams(kryo, input));
+				result.setFailParams(readParams(kryo, input));
+				return result;
+			default:
+				throw new IllegalStateException("Unknown transaction context variant " + variant);
+		}
+	}
+
+	/**
+	 * Writes the length plus one, with zero for {@code null}, followed by the elements.
+	 */
+	private static void writeParams(Kryo kryo, Output output, Object[] params) {
+		if (params == null) {
+			output.writeVarInt(0, true);
+			return;
+		}
+		output.writeVarInt(params.length + 1, true);
+		for (Object param : params)
+			kryo.writeClassAndObject(output, param);
+	}
+
+	private static Object[] readParams(Kryo kryo, Input input) {
+		int length = input.readVarInt(true) - 1;
+		if (length < 0) return null;
+		Object[] params = new Object[length];
+		for (int i = 0; i < length; ++i)
+			params[i] = kryo.readClassAndObject(input);
+		return params;
+	}
+
+}
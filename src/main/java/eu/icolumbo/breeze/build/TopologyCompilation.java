@@ -3,18 +3,33 @@ package eu.icolumbo.breeze.build;
 import eu.icolumbo.breeze.ConfiguredBolt;
 import eu.icolumbo.breeze.ConfiguredComponent;
 import eu.icolumbo.breeze.ConfiguredSpout;
+import eu.icolumbo.breeze.FusedBolt;
+import eu.icolumbo.breeze.JoinBolt;
+import eu.icolumbo.breeze.SpringBolt;
+import eu.icolumbo.breeze.SpringComponent;
+import eu.icolumbo.breeze.StreamGrouping;
+import eu.icolumbo.breeze.StreamRoute;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import static java.util.Arrays.asList;
@@ -30,6 +45,8 @@ public class TopologyCompilation extends TreeMap<ConfiguredSpout,List<Configured
 	private static final Logger logger = LoggerFactory.getLogger(TopologyCompilation.class);
 
 	private final List<ConfiguredBolt> unbound = new ArrayList<>();
+	private final Map<ConfiguredSpout,List<List<ConfiguredBolt>>> levels = new HashMap<>();
+	private final Map<StreamRoute,Branch> branches = new LinkedHashMap<>();
 
 
 	/**
@@ -58,6 +75,7 @@ public class TopologyCompilation extends TreeMap<ConfiguredSpout,List<Configured
 	public void add(ConfiguredBolt... values) {
 		for (ConfiguredBolt x : values) {
 			ensureId(x);
+			verifyGrouping(x);
 			unbound.add(x);
 		}
 	}
@@ -70,10 +88,36 @@ public class TopologyCompilation extends TreeMap<ConfiguredSpout,List<Configured
 		c.setId(id);
 	}
 
+	private static void verifyGrouping(ConfiguredBolt bolt) {
+		StreamGrouping grouping = bolt.getGrouping();
+		boolean keyed = grouping == StreamGrouping.FIELDS || grouping == StreamGrouping.PARTIAL_KEY;
+		if (keyed != (bolt.getGroupingFields().length != 0)) {
+			String msg = keyed ? "Key grouping without grouping fields for: " + bolt
+					: "Grouping fields require a key grouping for: " + bolt;
+			throw new IllegalStateException(msg);
+		}
+		if (bolt.getMergeBolt() != null && grouping != StreamGrouping.PARTIAL_KEY) {
+			String msg = "Merge requires partial key grouping for: " + bolt;
+			throw new IllegalStateException(msg);
+		}
+	}
+
+	/**
+	 * Gets the fields which must be available for a bolt.
+	 */
+	private static List<String> getRequiredFields(ConfiguredBolt bolt) {
+		List<String> fields = new ArrayList<>();
+		addAll(fields, bolt.getInputFields());
+		addAll(fields, bolt.getGroupingFields());
+		return fields;
+	}
+
 	@Override
 	public void clear() {
 		super.clear();
 		unbound.clear();
+		levels.clear();
+		branches.clear();
 	}
 
 	/**
@@ -88,42 +132,538 @@ public class TopologyCompilation extends TreeMap<ConfiguredSpout,List<Configured
 	@Override
 	public void run() {
 		logger.debug("Matching {} spouts with {} bolts", size(), unbound.size());
+		BindIndex lineIndex = new BindIndex(unbound);
 		for (Map.Entry<ConfiguredSpout,List<ConfiguredBolt>> line : entrySet()) {
 			Set<String> availableFields = new HashSet<>();
 			addAll(availableFields, line.getKey().getOutputFields());
+			lineIndex.bind(line.getKey(), availableFields, Collections.<ConfiguredComponent>emptySet(),
+					line.getValue());
+			logger.debug("Found {} bolts for {}", line.getValue().size(), line.getKey());
+		}
 
-			List<ConfiguredBolt> options = new ArrayList<>(unbound);
-			for (boolean collected = true; collected; ) {
-				collected = false;
-				Iterator<ConfiguredBolt> todo = options.iterator();
-				while (todo.hasNext()) {
-					ConfiguredBolt option = todo.next();
-					logger.trace("Trying {} for {}", option, line.getKey());
-					if (availableFields.containsAll(asList(option.getInputFields()))) {
-						line.getValue().add(option);
-						addAll(availableFields, option.getOutputFields());
-						todo.remove();
-						collected = true;
-					}
+		Deque<Branch> todo = new ArrayDeque<>();
+		Set<ConfiguredBolt> bound = new HashSet<>();
+		for (Map.Entry<ConfiguredSpout,List<ConfiguredBolt>> line : entrySet()) {
+			bound.addAll(line.getValue());
+			passThrough(line.getValue());
+
+			Set<ConfiguredComponent> upstream = new HashSet<>();
+			upstream.add(line.getKey());
+			addBranches(todo, line.getKey(), upstream);
+			for (ConfiguredBolt bolt : line.getValue()) {
+				upstream.add(bolt);
+				addBranches(todo, bolt, upstream);
+			}
+		}
+		unbound.removeAll(bound);
+
+		BindIndex branchIndex = new BindIndex(unbound);
+		for (Branch branch; (branch = todo.poll()) != null; ) {
+			Set<String> availableFields = new HashSet<>();
+			addAll(availableFields, branch.route.getOutputFields());
+			branchIndex.bind(branch, availableFields, branch.upstream, branch.bolts);
+			logger.debug("Found {} bolts for {}", branch.bolts.size(), branch);
+
+			unbound.removeAll(new HashSet<>(branch.bolts));
+			passThrough(branch.bolts);
+
+			Set<ConfiguredComponent> upstream = new HashSet<>(branch.upstream);
+			for (ConfiguredBolt bolt : branch.bolts) {
+				upstream.add(bolt);
+				addBranches(todo, bolt, upstream);
+			}
+		}
+
+		logger.info("Compiled as: {}", this);
+		if (! branches.isEmpty())
+			logger.info("Routed as: {}", branches.values());
+	}
+
+	/**
+	 * Sets the pass through fields backwards from the downstream requirements.
+	 */
+	private static void passThrough(List<ConfiguredBolt> processed) {
+		Set<String> requiredFields = new HashSet<>();
+		for (int i = processed.size(); --i >= 0; ) {
+			ConfiguredBolt bolt = processed.get(i);
+			ConfiguredBolt merge = bolt.getMergeBolt();
+			if (merge != null) {
+				requiredFields.removeAll(asList(merge.getOutputFields()));
+				merge.setPassThroughFields(requiredFields.toArray(new String[requiredFields.size()]));
+				requiredFields.addAll(getRequiredFields(merge));
+			}
+			requiredFields.removeAll(asList(bolt.getOutputFields()));
+			bolt.setPassThroughFields(requiredFields.toArray(new String[requiredFields.size()]));
+			requiredFields.addAll(getRequiredFields(bolt));
+		}
+	}
+
+	/**
+	 * Registers a branch for each route of a component, once.
+	 * @param upstream the components which precede the routes.
+	 */
+	private void addBranches(Deque<Branch> todo, ConfiguredComponent source, Set<ConfiguredComponent> upstream) {
+		if (! (source instanceof SpringComponent)) return;
+		for (StreamRoute route : ((SpringComponent) source).getRoutes()) {
+			if (branches.containsKey(route)) continue;
+			Branch branch = new Branch((SpringComponent) source, route, new HashSet<>(upstream));
+			branches.put(route, branch);
+			todo.add(branch);
+		}
+	}
+
+	/**
+	 * Gets the bolts per {@link SpringComponent#getRoutes() routed stream}.
+	 * Only bolts which can't run on any spout line subscribe to routed streams.
+	 */
+	public Collection<Branch> getBranches() {
+		return Collections.unmodifiableCollection(branches.values());
+	}
+
+	private static boolean isRouted(ConfiguredComponent component) {
+		return component instanceof SpringComponent && ! ((SpringComponent) component).getRoutes().isEmpty();
+	}
+
+	/**
+	 * Drops the output fields which no subscriber reads, such that they are neither
+	 * evaluated nor serialized. Pass through fields are already limited to the
+	 * downstream requirements by {@link #run() the compilation}.
+	 * Should be applied after {@link #fanOut() any fan-out} and before {@link #fuse() fusion}.
+	 * @see SpringComponent#setPrunedFields(String...)
+	 */
+	public void prune() {
+		Map<ConfiguredComponent,Set<String>> consumed = new LinkedHashMap<>();
+		Map<ConfiguredComponent,Set<String>> subscribers = new HashMap<>();
+		for (Map.Entry<ConfiguredSpout,List<ConfiguredBolt>> line : entrySet()) {
+			List<List<ConfiguredBolt>> lineLevels = levels.get(line.getKey());
+			if (lineLevels == null) lineLevels = getSequentialLevels(line.getValue());
+			prune(consumed, subscribers, line.getKey(), lineLevels);
+		}
+		for (Branch branch : branches.values())
+			prune(consumed, subscribers, null, getSequentialLevels(branch.bolts));
+
+		for (Map.Entry<ConfiguredComponent,Set<String>> entry : consumed.entrySet()) {
+			if (! (entry.getKey() instanceof SpringComponent)) continue;
+			SpringComponent component = (SpringComponent) entry.getKey();
+			List<String> pruned = new ArrayList<>();
+			for (String name : component.getOutputFields())
+				if (! entry.getValue().contains(name)) pruned.add(name);
+			component.setPrunedFields(pruned.toArray(new String[pruned.size()]));
+			if (! pruned.isEmpty())
+				logger.info("Pruned {} of {} from {} to {}", new Object[] {pruned,
+						asList(component.getOutputFields()), component, subscribers.get(component)});
+		}
+	}
+
+	/**
+	 * Collects the fields read per component.
+	 * @param spout the first upstream or {@code null} for a routed stream.
+	 */
+	private static void prune(Map<ConfiguredComponent,Set<String>> consumed,
+			Map<ConfiguredComponent,Set<String>> subscribers,
+			ConfiguredSpout spout, List<List<ConfiguredBolt>> lineLevels) {
+		List<ConfiguredComponent> sources = spout == null ? Collections.<ConfiguredComponent>emptyList()
+				: Collections.<ConfiguredComponent>singletonList(spout);
+		for (List<ConfiguredBolt> level : lineLevels) {
+			Set<String> reads = new HashSet<>();
+			List<ConfiguredComponent> next = new ArrayList<>();
+			for (ConfiguredBolt bolt : level) {
+				reads.addAll(getReadFields(bolt));
+				ConfiguredBolt merge = bolt.getMergeBolt();
+				if (merge == null) {
+					next.add(bolt);
+					continue;
 				}
+				consume(consumed, subscribers, bolt, getReadFields(merge), merge);
+				next.add(merge);
 			}
+			for (ConfiguredComponent source : sources)
+				consume(consumed, subscribers, source, reads, level.toArray(new ConfiguredComponent[level.size()]));
+			sources = next;
+		}
+		for (ConfiguredComponent source : sources)
+			consume(consumed, subscribers, source, Collections.<String>emptySet());
+	}
 
-			logger.debug("Found {} bolts for {}", line.getValue().size(), line.getKey());
+	private static List<List<ConfiguredBolt>> getSequentialLevels(List<ConfiguredBolt> bolts) {
+		List<List<ConfiguredBolt>> result = new ArrayList<>();
+		for (ConfiguredBolt bolt : bolts)
+			result.add(Collections.singletonList(bolt));
+		return result;
+	}
+
+	/**
+	 * Gets the fields which a bolt reads from its input.
+	 */
+	private static Set<String> getReadFields(ConfiguredBolt bolt) {
+		Set<String> fields = new HashSet<>(getRequiredFields(bolt));
+		addAll(fields, bolt.getPassThroughFields());
+		return fields;
+	}
+
+	private static void consume(Map<ConfiguredComponent,Set<String>> consumed,
+			Map<ConfiguredComponent,Set<String>> subscribers, ConfiguredComponent source,
+			Set<String> fields, ConfiguredComponent... targets) {
+		Set<String> names = consumed.get(source);
+		if (names == null) {
+			names = new HashSet<>();
+			consumed.put(source, names);
+			subscribers.put(source, new TreeSet<String>());
+		}
+		names.addAll(fields);
+		for (ConfiguredComponent target : targets)
+			subscribers.get(source).add(target.getId());
+	}
+
+	/**
+	 * Replaces consecutive {@link SpringBolt#isSynchronous() synchronous} bolts with
+	 * equal parallelism and without key distribution by a {@link FusedBolt}.
+	 * Should be applied after {@link #run() the compilation}.
+	 */
+	public void fuse() {
+		Map<ConfiguredBolt,Integer> usage = getUsage();
+		for (Map.Entry<ConfiguredSpout,List<ConfiguredBolt>> line : entrySet()) {
+			if (levels.containsKey(line.getKey())) continue;
+			line.setValue(fuse(line.getKey(), line.getValue(), usage));
+		}
+		for (Branch branch : branches.values()) {
+			List<ConfiguredBolt> result = fuse(branch, branch.bolts, usage);
+			branch.bolts.clear();
+			branch.bolts.addAll(result);
+		}
+	}
+
+	private static List<ConfiguredBolt> fuse(Object source, List<ConfiguredBolt> line,
+			Map<ConfiguredBolt,Integer> usage) {
+		List<ConfiguredBolt> result = new ArrayList<>();
+		List<SpringBolt> run = new ArrayList<>();
+		for (ConfiguredBolt bolt : line) {
+			boolean fusible = bolt instanceof SpringBolt && usage.get(bolt) == 1
+					&& ((SpringBolt) bolt).isSynchronous() && bolt.getMergeBolt() == null
+					&& ! isRouted(bolt);
+			if (fusible && ! run.isEmpty() && canFollow(run.get(run.size() - 1), bolt)) {
+				run.add((SpringBolt) bolt);
+				continue;
+			}
+
+			addFused(result, run);
+			if (fusible)
+				run.add((SpringBolt) bolt);
+			else
+				result.add(bolt);
+		}
+		addFused(result, run);
+
+		if (result.size() != line.size())
+			logger.info("Fused {} bolts for {} into: {}",
+					new Object[] {line.size(), source, result});
+		return result;
+	}
+
+	private static boolean canFollow(ConfiguredBolt previous, ConfiguredBolt bolt) {
+		switch (bolt.getGrouping()) {
+			case NONE:
+			case SHUFFLE:
+			case LOCAL_OR_SHUFFLE:
+				return Objects.equals(previous.getParallelism(), bolt.getParallelism());
+			default:
+				return false;
+		}
+	}
+
+	private static void addFused(List<ConfiguredBolt> result, List<SpringBolt> run) {
+		if (run.size() == 1)
+			result.add(run.get(0));
+		else if (run.size() > 1)
+			result.add(new FusedBolt(run));
+		run.clear();
+	}
+
+	/**
+	 * Lets independent bolts subscribe to the same upstream in parallel, such that the
+	 * latency follows the critical path rather than the number of bolts. A {@link JoinBolt}
+	 * recombines their output for any dependent bolts. Lines with shared bolts, merge bolts
+	 * or redefined fields remain sequential.
+	 * Should be applied after {@link #run() the compilation}.
+	 * @see #getLevels(ConfiguredSpout)
+	 */
+	public void fanOut() {
+		Map<ConfiguredBolt,Integer> usage = getUsage();
+		for (Map.Entry<ConfiguredSpout,List<ConfiguredBolt>> line : entrySet()) {
+			List<List<ConfiguredBolt>> dependencies = getDependencyLevels(line.getKey(), line.getValue(), usage);
+			if (dependencies == null) continue;
+
+			List<List<ConfiguredBolt>> result = join(dependencies);
+			List<ConfiguredBolt> bolts = new ArrayList<>();
+			for (List<ConfiguredBolt> level : result)
+				bolts.addAll(level);
+			line.setValue(bolts);
+			levels.put(line.getKey(), result);
+			logger.info("Fanned out {} as: {}", line.getKey(), result);
 		}
+	}
+
+	/**
+	 * Gets the {@link #fanOut() parallel} bolts in order of dependency.
+	 * Each bolt subscribes to all bolts on the previous level.
+	 * @return the levels or {@code null} for a sequential line.
+	 */
+	public List<List<ConfiguredBolt>> getLevels(ConfiguredSpout spout) {
+		return levels.get(spout);
+	}
+
+	/**
+	 * Gets the number of lines per bolt.
+	 */
+	private Map<ConfiguredBolt,Integer> getUsage() {
+		Map<ConfiguredBolt,Integer> usage = new HashMap<>();
+		List<List<ConfiguredBolt>> lines = new ArrayList<>(values());
+		for (Branch branch : branches.values())
+			lines.add(branch.bolts);
+		for (List<ConfiguredBolt> line : lines)
+			for (ConfiguredBolt bolt : line) {
+				Integer count = usage.get(bolt);
+				usage.put(bolt, count == null ? 1 : count + 1);
+			}
+		return usage;
+	}
 
-		for (List<ConfiguredBolt> processed: values()) {
-			unbound.removeAll(processed);
+	/**
+	 * Groups the bolts by the number of preceding bolts they depend on.
+	 * @return the levels or {@code null} when not applicable.
+	 */
+	private static List<List<ConfiguredBolt>> getDependencyLevels(ConfiguredSpout spout,
+			List<ConfiguredBolt> line, Map<ConfiguredBolt,Integer> usage) {
+		Map<String,Integer> fieldLevels = new HashMap<>();
+		for (String name : spout.getOutputFields())
+			fieldLevels.put(name, 0);
 
-			Set<String> requiredFields = new HashSet<>();
-			for (int i = processed.size(); --i >= 0; ) {
-				ConfiguredBolt bolt = processed.get(i);
+		List<List<ConfiguredBolt>> result = new ArrayList<>();
+		int barrier = 0;
+		boolean parallel = false;
+		for (ConfiguredBolt bolt : line) {
+			if (usage.get(bolt) != 1 || bolt.getMergeBolt() != null || isRouted(bolt)) return null;
+			for (String name : bolt.getOutputFields())
+				if (fieldLevels.containsKey(name)) return null;
+
+			int level;
+			if (bolt instanceof SpringBolt && ! ((SpringBolt) bolt).getScatterOutput()) {
+				level = barrier + 1;
+				for (String name : getRequiredFields(bolt))
+					level = Math.max(level, fieldLevels.get(name) + 1);
+			} else {
+				level = result.size() + 1;
+				barrier = level;
+			}
+
+			while (result.size() < level)
+				result.add(new ArrayList<ConfiguredBolt>());
+			List<ConfiguredBolt> members = result.get(level - 1);
+			members.add(bolt);
+			parallel |= members.size() > 1;
+			for (String name : bolt.getOutputFields())
+				fieldLevels.put(name, level);
+		}
+		return parallel ? result : null;
+	}
+
+	/**
+	 * Inserts a {@link JoinBolt} around the parallel levels and
+	 * calculates the pass through fields.
+	 */
+	private static List<List<ConfiguredBolt>> join(List<List<ConfiguredBolt>> dependencies) {
+		LinkedList<List<ConfiguredBolt>> result = new LinkedList<>();
+		Set<String> requiredFields = new TreeSet<>();
+		for (int i = dependencies.size(); --i >= 0; ) {
+			List<ConfiguredBolt> level = dependencies.get(i);
+			if (level.size() == 1) {
+				ConfiguredBolt bolt = level.get(0);
 				requiredFields.removeAll(asList(bolt.getOutputFields()));
 				bolt.setPassThroughFields(requiredFields.toArray(new String[requiredFields.size()]));
-				addAll(requiredFields, bolt.getInputFields());
+				requiredFields.addAll(getRequiredFields(bolt));
+				result.addFirst(level);
+				continue;
+			}
+
+			StringBuilder id = new StringBuilder();
+			int parallelism = 1;
+			for (ConfiguredBolt bolt : level) {
+				if (id.length() != 0) id.append('+');
+				id.append(bolt.getId());
+				Number hint = bolt.getParallelism();
+				if (hint != null) parallelism = Math.max(parallelism, hint.intValue());
+			}
+
+			boolean downstream = ! requiredFields.isEmpty();
+			if (downstream) {
+				JoinBolt join = new JoinBolt(id + "-join", level.size(),
+						requiredFields.toArray(new String[requiredFields.size()]));
+				join.setParallelism(parallelism);
+				result.addFirst(Collections.<ConfiguredBolt>singletonList(join));
+			}
+
+			Set<String> carry = new TreeSet<>(requiredFields);
+			for (ConfiguredBolt bolt : level)
+				carry.removeAll(asList(bolt.getOutputFields()));
+			for (int j = 0; j < level.size(); ++j) {
+				List<String> passThrough = new ArrayList<>();
+				if (j == 0) passThrough.addAll(carry);
+				if (downstream) passThrough.add(JoinBolt.KEY_FIELD);
+				level.get(j).setPassThroughFields(passThrough.toArray(new String[passThrough.size()]));
+			}
+			result.addFirst(level);
+
+			requiredFields = carry;
+			for (ConfiguredBolt bolt : level)
+				requiredFields.addAll(getRequiredFields(bolt));
+
+			if (downstream && (i == 0 || dependencies.get(i - 1).size() == 1)) {
+				JoinBolt fork = new JoinBolt(id + "-fork", 1,
+						requiredFields.toArray(new String[requiredFields.size()]));
+				fork.setParallelism(parallelism);
+				result.addFirst(Collections.<ConfiguredBolt>singletonList(fork));
 			}
 		}
+		return result;
+	}
+
+
+	/**
+	 * Candidate bolts per required field for binding in near-linear time.
+	 * The result equals repeated scans over the candidates in order, where each scan
+	 * collects the bolts which can run on the fields available at that point.
+	 */
+	private static final class BindIndex {
+
+		private final List<ConfiguredBolt> candidates;
+		private final int[] requiredCounts;
+		private final Map<String,List<Integer>> waiting = new HashMap<>();
+		private final List<Integer> unconditional = new ArrayList<>();
+
+
+		/**
+		 * @param candidates the bolts in order of preference.
+		 */
+		BindIndex(List<ConfiguredBolt> candidates) {
+			this.candidates = new ArrayList<>(candidates);
+			requiredCounts = new int[this.candidates.size()];
+			for (int i = 0; i < requiredCounts.length; ++i) {
+				Set<String> required = new HashSet<>(getRequiredFields(this.candidates.get(i)));
+				requiredCounts[i] = required.size();
+				if (required.isEmpty())
+					unconditional.add(i);
+				for (String field : required) {
+					List<Integer> positions = waiting.get(field);
+					if (positions == null) {
+						positions = new ArrayList<>();
+						waiting.put(field, positions);
+					}
+					positions.add(i);
+				}
+			}
+		}
+
+		/**
+		 * Collects the bolts which can run on the available fields.
+		 * A bolt is due in the scan after the one which completed its input, i.e.,
+		 * in the same scan when it comes later in order and in the next scan otherwise.
+		 * @param source the upstream for logging.
+		 * @param excluded the candidates to ignore.
+		 * @param result the bolts in order of dependency.
+		 */
+		void bind(Object source, Set<String> availableFields,
+				Set<? extends ConfiguredComponent> excluded, List<ConfiguredBolt> result) {
+			int[] pending = requiredCounts.clone();
+			// scan number in the high and candidate position in the low bits
+			PriorityQueue<Long> due = new PriorityQueue<>();
+			for (int i : unconditional)
+				schedule(due, excluded, 1, i);
+			for (String field : availableFields)
+				release(field, 1, -1, pending, due, excluded);
+
+			for (Long next; (next = due.poll()) != null; ) {
+				long scan = next >>> 32;
+				int position = (int) (long) next;
+				ConfiguredBolt option = candidates.get(position);
+				logger.trace("Binding {} to {}", option, source);
+				result.add(option);
+
+				for (String field : option.getOutputFields())
+					if (availableFields.add(field))
+						release(field, scan, position, pending, due, excluded);
+
+				ConfiguredBolt merge = option.getMergeBolt();
+				if (merge != null && ! availableFields.containsAll(getRequiredFields(merge))) {
+					String msg = "Can't resolve all merge input fields for: " + option;
+					throw new IllegalStateException(msg);
+				}
+			}
+		}
+
+		/**
+		 * Registers a field as available.
+		 * @param scan the number of the current scan.
+		 * @param position the candidate which provided the field or -1 for the source.
+		 */
+		private void release(String field, long scan, int position, int[] pending,
+				PriorityQueue<Long> due, Set<? extends ConfiguredComponent> excluded) {
+			List<Integer> positions = waiting.get(field);
+			if (positions == null) return;
+			for (int i : positions)
+				if (--pending[i] == 0)
+					schedule(due, excluded, i > position ? scan : scan + 1, i);
+		}
+
+		private void schedule(PriorityQueue<Long> due, Set<? extends ConfiguredComponent> excluded,
+				long scan, int position) {
+			if (! excluded.contains(candidates.get(position)))
+				due.add(scan << 32 | position);
+		}
+
+	}
+
+
+	/**
+	 * Bolts on a {@link StreamRoute routed stream}.
+	 */
+	public static final class Branch {
+
+		private final SpringComponent source;
+		private final StreamRoute route;
+		private final Set<ConfiguredComponent> upstream;
+		private final List<ConfiguredBolt> bolts = new ArrayList<>();
+
+		Branch(SpringComponent source, StreamRoute route, Set<ConfiguredComponent> upstream) {
+			this.source = source;
+			this.route = route;
+			this.upstream = upstream;
+		}
+
+		/**
+		 * Gets the emitter.
+		 */
+		public SpringComponent getSource() {
+			return source;
+		}
+
+		public StreamRoute getRoute() {
+			return route;
+		}
+
+		/**
+		 * Gets the subscribers in order of dependency.
+		 */
+		public List<ConfiguredBolt> getBolts() {
+			return Collections.unmodifiableList(bolts);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder buffer = new StringBuilder();
+			buffer.append(source).append(route).append('=').append(bolts);
+			return buffer.toString();
+		}
 
-		logger.info("Compiled as: {}", this);
 	}
 
 }
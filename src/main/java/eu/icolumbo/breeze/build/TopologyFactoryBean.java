@@ -1,16 +1,31 @@
 package eu.icolumbo.breeze.build;
 
 import eu.icolumbo.breeze.ConfiguredBolt;
+import eu.icolumbo.breeze.ConfiguredComponent;
 import eu.icolumbo.breeze.ConfiguredSpout;
+import eu.icolumbo.breeze.FusedBolt;
+import eu.icolumbo.breeze.SpringBolt;
+import eu.icolumbo.breeze.SpringComponent;
+import eu.icolumbo.breeze.SpringWorkerHook;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+import org.apache.storm.Config;
 import org.apache.storm.generated.StormTopology;
 import org.apache.storm.topology.BoltDeclarer;
 import org.apache.storm.topology.TopologyBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.FactoryBean;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -18,7 +33,13 @@ import java.util.Map;
  */
 public class TopologyFactoryBean extends TopologyCompilation implements FactoryBean<StormTopology> {
 
+	private static final Logger logger = LoggerFactory.getLogger(TopologyFactoryBean.class);
+
 	private StormTopology singleton;
+	private boolean fusion;
+	private boolean fanOut;
+	private boolean javaSerialization = true;
+	private final Set<Class<?>> serializations = new LinkedHashSet<>();
 
 
 	public void setSpouts(List<ConfiguredSpout> value) {
@@ -31,6 +52,45 @@ public class TopologyFactoryBean extends TopologyCompilation implements FactoryB
 			add(bolt);
 	}
 
+	/**
+	 * Sets whether consecutive bolts should run in a single executor.
+	 * @see #fuse()
+	 */
+	public void setFusion(boolean value) {
+		fusion = value;
+	}
+
+	/**
+	 * Sets whether independent bolts should run in parallel.
+	 * @see #fanOut()
+	 */
+	public void setFanOut(boolean value) {
+		fanOut = value;
+	}
+
+	/**
+	 * Sets whether Storm may fall back to Java serialization for types without a
+	 * Kryo registration. When disabled, the build fails for inferred output types
+	 * which Kryo can't instantiate.
+	 * @see #registerSerializations(Config)
+	 */
+	public void setJavaSerialization(boolean value) {
+		javaSerialization = value;
+	}
+
+	/**
+	 * Registers the output types inferred from the bean methods for Kryo.
+	 * @see #setJavaSerialization(boolean)
+	 */
+	public void registerSerializations(Config config) {
+		if (singleton == null)
+			singleton = build();
+		for (Class<?> type : serializations)
+			config.registerSerialization(type);
+		if (! javaSerialization)
+			config.setFallBackOnJavaSerialization(false);
+	}
+
 	@Override
 	public Class<StormTopology> getObjectType() {
 		return StormTopology.class;
@@ -51,28 +111,150 @@ public class TopologyFactoryBean extends TopologyCompilation implements FactoryB
 	private StormTopology build() {
 		run();
 		verify();
+		if (fanOut) fanOut();
+		prune();
+		if (fusion) fuse();
+		inferSerializations();
 
 		Map<String,BoltDeclarer> declaredBolts = new HashMap<>();
 
 		TopologyBuilder builder = new TopologyBuilder();
+		builder.addWorkerHook(new SpringWorkerHook());
 		for (Map.Entry<ConfiguredSpout,List<ConfiguredBolt>> line : entrySet()) {
 			ConfiguredSpout spout = line.getKey();
 			String lastId = spout.getId();
 			String streamId = spout.getOutputStreamId();
 			builder.setSpout(lastId, spout, spout.getParallelism());
-			for (ConfiguredBolt bolt : line.getValue()) {
-				String id = bolt.getId();
-				BoltDeclarer declarer = declaredBolts.get(id);
-				if (declarer == null)
-					declarer = builder.setBolt(id, bolt, bolt.getParallelism());
-				declarer.noneGrouping(lastId, streamId);
-				if (declaredBolts.put(id, declarer) != null) break;
-				lastId = id;
-				streamId = bolt.getOutputStreamId();
+
+			List<List<ConfiguredBolt>> levels = getLevels(spout);
+			if (levels != null) {
+				List<? extends ConfiguredComponent> sources = Collections.singletonList(spout);
+				for (List<ConfiguredBolt> level : levels) {
+					for (ConfiguredBolt bolt : level) {
+						BoltDeclarer declarer = builder.setBolt(bolt.getId(), bolt, bolt.getParallelism());
+						for (ConfiguredComponent source : sources)
+							bolt.getGrouping().declare(declarer, source.getId(), source.getOutputStreamId(),
+									bolt.getGroupingFields());
+					}
+					sources = level;
+				}
+				continue;
 			}
+			declare(builder, declaredBolts, lastId, streamId, line.getValue());
 		}
 
+		for (Branch branch : getBranches())
+			declare(builder, declaredBolts, branch.getSource().getId(),
+					branch.getRoute().getStreamId(), branch.getBolts());
+
 		return builder.createTopology();
 	}
 
+	/**
+	 * Collects the types which Storm serializes between workers.
+	 * Fused stages only serialize the output of the last one.
+	 */
+	private void inferSerializations() {
+		Set<SpringComponent> emitters = new LinkedHashSet<>();
+		for (Map.Entry<ConfiguredSpout,List<ConfiguredBolt>> line : entrySet()) {
+			if (line.getKey() instanceof SpringComponent)
+				emitters.add((SpringComponent) line.getKey());
+			for (ConfiguredBolt bolt : line.getValue())
+				addEmitter(emitters, bolt);
+		}
+		for (Branch branch : getBranches())
+			for (ConfiguredBolt bolt : branch.getBolts())
+				addEmitter(emitters, bolt);
+
+		Kryo kryo = new Kryo();
+		serializations.clear();
+		for (SpringComponent emitter : emitters)
+			for (Class<?> type : emitter.getOutputTypes())
+				addSerialization(kryo, emitter, type);
+		logger.info("Inferred Kryo registrations: {}", serializations);
+	}
+
+	private static void addEmitter(Set<SpringComponent> emitters, ConfiguredBolt bolt) {
+		if (bolt instanceof FusedBolt) {
+			List<SpringBolt> stages = ((FusedBolt) bolt).getStages();
+			emitters.add(stages.get(stages.size() - 1));
+		} else if (bolt instanceof SpringComponent) {
+			emitters.add((SpringComponent) bolt);
+		}
+		ConfiguredBolt merge = bolt.getMergeBolt();
+		if (merge != null)
+			addEmitter(emitters, merge);
+	}
+
+	/**
+	 * Adds a type including the declared types of its fields for the default Kryo serializer.
+	 * @throws IllegalStateException when Kryo can't instantiate the type without Java serialization.
+	 */
+	private void addSerialization(Kryo kryo, SpringComponent source, Class<?> type) {
+		if (type.isPrimitive() || type == Object.class || serializations.contains(type)) return;
+		if (kryo.getClassResolver().getRegistration(type) != null) return;
+		if (type.isArray()) {
+			addSerialization(kryo, source, type.getComponentType());
+			serializations.add(type);
+			return;
+		}
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			if (! javaSerialization)
+				logger.warn("{} emits {} which can't be registered ahead", source, type.getName());
+			return;
+		}
+
+		boolean fieldSerializer = kryo.getDefaultSerializer(type) instanceof FieldSerializer;
+		if (fieldSerializer && ! javaSerialization && ! hasDefaultConstructor(type)) {
+			String msg = "No Kryo instantiation for " + type.getName() + " from " + source
+					+ " without Java serialization";
+			throw new IllegalStateException(msg);
+		}
+		serializations.add(type);
+
+		if (fieldSerializer)
+			for (Class<?> c = type; c != Object.class && c != null; c = c.getSuperclass())
+				for (Field field : c.getDeclaredFields())
+					if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0)
+						addSerialization(kryo, source, field.getType());
+	}
+
+	private static boolean hasDefaultConstructor(Class<?> type) {
+		try {
+			type.getDeclaredConstructor();
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Subscribes bolts one after another.
+	 * @param lastId the upstream component.
+	 * @param streamId the upstream output.
+	 */
+	private static void declare(TopologyBuilder builder, Map<String,BoltDeclarer> declaredBolts,
+			String lastId, String streamId, List<ConfiguredBolt> bolts) {
+		for (ConfiguredBolt bolt : bolts) {
+			String id = bolt.getId();
+			BoltDeclarer declarer = declaredBolts.get(id);
+			if (declarer == null)
+				declarer = builder.setBolt(id, bolt, bolt.getParallelism());
+			bolt.getGrouping().declare(declarer, lastId, streamId, bolt.getGroupingFields());
+			if (declaredBolts.put(id, declarer) != null) break;
+			lastId = id;
+			streamId = bolt.getOutputStreamId();
+
+			ConfiguredBolt merge = bolt.getMergeBolt();
+			if (merge != null) {
+				String mergeId = merge.getId();
+				declarer = builder.setBolt(mergeId, merge, merge.getParallelism());
+				merge.getGrouping().declare(declarer, lastId, streamId, merge.getGroupingFields());
+				declaredBolts.put(mergeId, declarer);
+				lastId = mergeId;
+				streamId = merge.getOutputStreamId();
+			}
+		}
+	}
+
 }
@@ -2,6 +2,7 @@ package eu.icolumbo.breeze.connect;
 
 import eu.icolumbo.breeze.ConfiguredBolt;
 import eu.icolumbo.breeze.FunctionSignature;
+import eu.icolumbo.breeze.StreamGrouping;
 
 import org.apache.storm.drpc.ReturnResults;
 import org.apache.storm.task.OutputCollector;
@@ -128,6 +129,21 @@ public class SpringRPCResponse extends ReturnResults implements ConfiguredBolt {
 		passThroughFields = value;
 	}
 
+	@Override
+	public StreamGrouping getGrouping() {
+		return StreamGrouping.NONE;
+	}
+
+	@Override
+	public String[] getGroupingFields() {
+		return new String[0];
+	}
+
+	@Override
+	public ConfiguredBolt getMergeBolt() {
+		return null;
+	}
+
 	@Override
 	public Number getParallelism() {
 		return parallelism;
@@ -1,7 +1,11 @@
 package eu.icolumbo.breeze.namespace;
 
+import eu.icolumbo.breeze.BeanResolution;
+import eu.icolumbo.breeze.IdleStrategy;
 import eu.icolumbo.breeze.SpringBolt;
 import eu.icolumbo.breeze.SpringSpout;
+import eu.icolumbo.breeze.StreamGrouping;
+import eu.icolumbo.breeze.StreamRoute;
 import eu.icolumbo.breeze.build.TopologyFactoryBean;
 import eu.icolumbo.breeze.connect.SpringRPCRequest;
 import eu.icolumbo.breeze.connect.SpringRPCResponse;
@@ -18,6 +22,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.StringTokenizer;
 
+import static java.util.Locale.ENGLISH;
 import static org.springframework.beans.factory.support.BeanDefinitionBuilder.rootBeanDefinition;
 import static org.springframework.util.StringUtils.hasText;
 import static org.springframework.util.xml.DomUtils.getChildElementByTagName;
@@ -51,6 +56,23 @@ public class TopologyBeanDefinitionParser extends AbstractBeanDefinitionParser {
 				delayExceptions.put(type, Long.valueOf(exception.getAttribute("delay")));
 			}
 			builder.addPropertyValue("delayExceptions", delayExceptions);
+			builder.addPropertyValue("emitBudget", Integer.valueOf(spout.getAttribute("emitBudget")));
+			builder.addPropertyValue("backoffMultiplier", Double.valueOf(spout.getAttribute("backoffMultiplier")));
+			builder.addPropertyValue("maxBackoff", Long.valueOf(spout.getAttribute("maxBackoff")));
+			builder.addPropertyValue("backoffJitter", Double.valueOf(spout.getAttribute("backoffJitter")));
+			String idle = spout.getAttribute("idle");
+			if (hasText(idle))
+				builder.addPropertyValue("idleStrategy", IdleStrategy.valueOf(idle.toUpperCase(ENGLISH)));
+			builder.addPropertyValue("idleDelay", Long.valueOf(spout.getAttribute("idleDelay")));
+			builder.addPropertyValue("prefetchThreads", Integer.valueOf(spout.getAttribute("prefetchThreads")));
+			builder.addPropertyValue("prefetchCapacity", Integer.valueOf(spout.getAttribute("prefetchCapacity")));
+			builder.addPropertyValue("maxReplays", Integer.valueOf(spout.getAttribute("maxReplays")));
+			builder.addPropertyValue("replayCapacity", Integer.valueOf(spout.getAttribute("replayCapacity")));
+			String[] replayDelays = tokenize(spout.getAttribute("replayDelays"));
+			long[] delays = new long[replayDelays.length];
+			for (int i = 0; i < delays.length; ++i)
+				delays[i] = Long.parseLong(replayDelays[i]);
+			builder.addPropertyValue("replayDelays", delays);
 
 			Element transaction = getChildElementByTagName(spout, "transaction");
 			if (transaction != null) {
@@ -60,6 +82,8 @@ public class TopologyBeanDefinitionParser extends AbstractBeanDefinitionParser {
 				String fail = transaction.getAttribute("fail");
 				if (hasText(fail))
 					builder.addPropertyValue("failSignature", fail);
+				builder.addPropertyValue("transactionBatchSize", Integer.valueOf(transaction.getAttribute("batchSize")));
+				builder.addPropertyValue("transactionBatchTimeout", Long.valueOf(transaction.getAttribute("batchTimeout")));
 			}
 
 			spoutDefinitions.add(define(builder, spout, registry));
@@ -69,6 +93,23 @@ public class TopologyBeanDefinitionParser extends AbstractBeanDefinitionParser {
 		for (Element bolt : getChildElementsByTagName(root, "bolt")) {
 			BeanDefinitionBuilder builder = rootBeanDefinition(SpringBolt.class);
 			builder.addPropertyValue("doAnchor", Boolean.valueOf(bolt.getAttribute("anchor")));
+			builder.addPropertyValue("batchSize", Integer.valueOf(bolt.getAttribute("batchSize")));
+			builder.addPropertyValue("batchTimeout", Long.valueOf(bolt.getAttribute("batchTimeout")));
+			builder.addPropertyValue("maxInFlight", Integer.valueOf(bolt.getAttribute("maxInFlight")));
+			builder.addPropertyValue("orderedCompletion", Boolean.valueOf(bolt.getAttribute("orderedCompletion")));
+			String executor = bolt.getAttribute("executor");
+			if (hasText(executor))
+				builder.addPropertyValue("executor", executor);
+			String orderingKey = bolt.getAttribute("orderingKey");
+			if (hasText(orderingKey))
+				builder.addPropertyValue("orderingKey", orderingKey);
+			String grouping = bolt.getAttribute("grouping");
+			if (hasText(grouping))
+				builder.addPropertyValue("grouping", StreamGrouping.valueOf(grouping.replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase(ENGLISH)));
+			builder.addPropertyValue("groupingFields", tokenize(bolt.getAttribute("groupingFields")));
+			String merge = bolt.getAttribute("merge");
+			if (hasText(merge))
+				builder.addPropertyValue("mergeSignature", merge);
 			boltDefinitions.add(define(builder, bolt, registry));
 		}
 
@@ -90,6 +131,9 @@ public class TopologyBeanDefinitionParser extends AbstractBeanDefinitionParser {
 		BeanDefinitionBuilder builder = rootBeanDefinition(TopologyFactoryBean.class);
 		builder.addPropertyValue("bolts", boltDefinitions);
 		builder.addPropertyValue("spouts", spoutDefinitions);
+		builder.addPropertyValue("fusion", Boolean.valueOf(root.getAttribute("fusion")));
+		builder.addPropertyValue("fanOut", Boolean.valueOf(root.getAttribute("fanOut")));
+		builder.addPropertyValue("javaSerialization", Boolean.valueOf(root.getAttribute("javaSerialization")));
 		return builder.getBeanDefinition();
 	}
 
@@ -102,12 +146,32 @@ public class TopologyBeanDefinitionParser extends AbstractBeanDefinitionParser {
 		builder.addConstructorArgValue(tokenize(element.getAttribute("outputFields")));
 		builder.addPropertyValue("parallelism", Integer.valueOf(element.getAttribute("parallelism")));
 		builder.addPropertyValue("scatterOutput", Boolean.valueOf(element.getAttribute("scatterOutput")));
+		String beanResolution = element.getAttribute("beanResolution");
+		if (hasText(beanResolution))
+			builder.addPropertyValue("beanResolution", BeanResolution.valueOf(beanResolution.toUpperCase(ENGLISH)));
+		builder.addPropertyValue("metrics", Boolean.valueOf(element.getAttribute("metrics")));
+		builder.addPropertyValue("metricSampling", Integer.valueOf(element.getAttribute("metricSampling")));
 
 		Map<String,String> outputBinding = new HashMap<>();
 		for (Element field : getChildElementsByTagName(element, "field"))
 			outputBinding.put(field.getAttribute("name"), field.getAttribute("expression"));
 		builder.addPropertyValue("outputBinding", outputBinding);
 
+		ManagedList<BeanDefinition> routes = new ManagedList<>();
+		for (Element stream : getChildElementsByTagName(element, "stream")) {
+			BeanDefinitionBuilder route = rootBeanDefinition(StreamRoute.class);
+			route.addConstructorArgValue(stream.getAttribute("id"));
+			route.addConstructorArgValue(tokenize(stream.getAttribute("outputFields")));
+			String type = stream.getAttribute("type");
+			if (hasText(type))
+				route.addPropertyValue("entryType", type);
+			String condition = stream.getAttribute("condition");
+			if (hasText(condition))
+				route.addPropertyValue("condition", condition);
+			routes.add(route.getBeanDefinition());
+		}
+		builder.addPropertyValue("routes", routes);
+
 		AbstractBeanDefinition definition = builder.getBeanDefinition();
 
 		String id = element.getAttribute(ID_ATTRIBUTE);
@@ -1,6 +1,8 @@
 package eu.icolumbo.breeze.namespace;
 
 import eu.icolumbo.breeze.SingletonApplicationContext;
+import eu.icolumbo.breeze.TransactionContextSerializer;
+import eu.icolumbo.breeze.build.TopologyFactoryBean;
 
 import org.apache.storm.Config;
 import org.apache.storm.LocalCluster;
@@ -9,6 +11,7 @@ import org.apache.storm.generated.StormTopology;
 import org.apache.storm.validation.ConfigValidation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.context.ApplicationContext;
 
 import java.io.FileInputStream;
@@ -92,9 +95,14 @@ public class TopologyStarter extends Thread {
 	public void run() {
 		properties.put(Config.TOPOLOGY_NAME, ID);
 		Config config = stormConfig(properties);
+		TransactionContextSerializer.register(config);
 		ApplicationContext spring = SingletonApplicationContext.loadXml(config, MAIN_CONTEXT);
 		try {
 			StormTopology topology = spring.getBean(ID, StormTopology.class);
+			TopologyFactoryBean factory = spring.getBeansOfType(TopologyFactoryBean.class)
+					.get(BeanFactory.FACTORY_BEAN_PREFIX + ID);
+			if (factory != null)
+				factory.registerSerializations(config);
 
 			Properties systemProperties = System.getProperties();
 			if (systemProperties.containsKey(LOCAL_RUN_PARAM)) {
@@ -0,0 +1,71 @@
+package eu.icolumbo.breeze;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static eu.icolumbo.breeze.ComponentMetric.Histogram.highestEquivalent;
+import static eu.icolumbo.breeze.ComponentMetric.Histogram.index;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests {@link ComponentMetric}.
+ */
+public class ComponentMetricTest {
+
+	@Test
+	public void sampling() {
+		ComponentMetric subject = new ComponentMetric(3);
+		assertTrue(subject.sample());
+		assertFalse(subject.sample());
+		assertFalse(subject.sample());
+		assertTrue(subject.sample());
+	}
+
+	@Test
+	public void buckets() {
+		int last = -1;
+		for (long value = 0; value < 1 << 20; ++value) {
+			int i = index(value);
+			assertTrue(value + " in bucket " + i, i == last || i == last + 1);
+			assertTrue(value + " within bucket " + i, value <= highestEquivalent(i));
+			last = i;
+		}
+		assertEquals(Long.MAX_VALUE, highestEquivalent(index(Long.MAX_VALUE)));
+	}
+
+	@Test
+	public void percentiles() {
+		ComponentMetric.Histogram subject = new ComponentMetric.Histogram();
+		for (long value = 1; value <= 1000; ++value)
+			subject.record(value);
+
+		Map<String,Object> values = subject.getValueAndReset(1);
+		assertEquals(1000L, values.get("count"));
+		assertEquals(500.5, (Double) values.get("mean"), 0);
+		assertEquals(500, (Double) values.get("p50"), 500 / 16);
+		assertEquals(990, (Double) values.get("p99"), 990 / 16);
+		assertEquals(1000.0, values.get("max"));
+
+		values = subject.getValueAndReset(1);
+		assertEquals(0L, values.get("count"));
+		assertEquals(0.0, values.get("p99"));
+	}
+
+	@Test
+	public void exceptions() {
+		ComponentMetric subject = new ComponentMetric(1);
+		subject.failed(new IllegalStateException());
+		subject.failed(new IllegalStateException());
+		subject.invoked(-1);
+
+		Map<String,Object> values = (Map) subject.getValueAndReset();
+		assertEquals(1L, values.get("invocations"));
+		assertEquals(0L, ((Map) values.get("invokeLatencyMillis")).get("count"));
+		assertEquals(2L, ((Map) values.get("exceptions")).get(IllegalStateException.class.getName()));
+	}
+
+}
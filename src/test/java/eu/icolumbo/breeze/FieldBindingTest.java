@@ -0,0 +1,102 @@
+package eu.icolumbo.breeze;
+
+import org.junit.Test;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Tests {@link FieldBinding}.
+ */
+public class FieldBindingTest {
+
+	private final EvaluationContext context = new StandardEvaluationContext();
+
+
+	public static class Record {
+		public String label = "field";
+		public String getName() { return "getter"; }
+		public boolean isValid() { return true; }
+		public String getBroken() { throw new IllegalStateException("test"); }
+	}
+
+	public static class SubRecord extends Record {
+		public String getExtra() { return "sub"; }
+	}
+
+
+	@Test
+	public void root() {
+		Object entry = new Object();
+		assertSame(entry, FieldBinding.root().read(entry, context));
+	}
+
+	@Test
+	public void getter() {
+		assertEquals("getter", property("name", Record.class).read(new Record(), context));
+		assertEquals(true, property("valid", Record.class).read(new Record(), context));
+	}
+
+	@Test
+	public void publicField() {
+		assertEquals("field", property("label", Record.class).read(new Record(), context));
+	}
+
+	@Test
+	public void runtimeType() {
+		FieldBinding subject = property("extra", Record.class);
+		assertEquals("sub", subject.read(new SubRecord(), context));
+		assertEquals("sub", property("extra", Object.class).read(new SubRecord(), context));
+	}
+
+	@Test
+	public void mapKey() {
+		Map<String,Object> entry = new HashMap<>();
+		entry.put("name", "value");
+		assertEquals("value", property("name", Object.class).read(entry, context));
+		assertEquals("value", property("name", Map.class).read(entry, context));
+	}
+
+	@Test
+	public void nullSafe() {
+		assertNull(property("name", Record.class).read(null, context));
+	}
+
+	@Test
+	public void readException() {
+		try {
+			property("broken", Record.class).read(new Record(), context);
+			fail("no exception");
+		} catch (SpelEvaluationException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		}
+	}
+
+	@Test
+	public void unknownFallback() {
+		try {
+			property("unknown", Record.class).read(new Record(), context);
+			fail("no exception");
+		} catch (SpelEvaluationException e) {
+			assertEquals("EL1008E:(pos 7): Property or field 'unknown' cannot be found on object of type " +
+					"'eu.icolumbo.breeze.FieldBindingTest$Record' - maybe not public?", e.getMessage());
+		}
+	}
+
+	private static FieldBinding property(String name, Class<?> declaredType) {
+		Expression fallback = new SpelExpressionParser().parseExpression("#root?." + name);
+		return FieldBinding.property(name, declaredType, fallback);
+	}
+
+}
@@ -0,0 +1,172 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.metric.api.IMetric;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.topology.OutputFieldsDeclarer;
+import org.apache.storm.tuple.Fields;
+import org.apache.storm.tuple.Tuple;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+
+
+/**
+ * Tests {@link FusedBolt}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class FusedBoltTest {
+
+	@Mock
+	Tuple tupleMock;
+
+	@Mock
+	OutputCollector outputCollectorMock;
+
+	@Mock
+	TopologyContext topologyContextMock;
+
+	@Mock
+	OutputFieldsDeclarer outputFieldsDeclarerMock;
+
+	@Mock
+	ApplicationContext applicationContextMock;
+
+	Map<String,Object> stormConf = new HashMap<>();
+
+
+	@Before
+	public void init() {
+		stormConf.clear();
+		stormConf.put("topology.name", "topology");
+		doReturn(new TestBean()).when(applicationContextMock).getBean(TestBean.class);
+	}
+
+	private FusedBolt fuse(SpringBolt... stages) {
+		for (SpringBolt stage : stages)
+			stage.setApplicationContext(applicationContextMock);
+		FusedBolt subject = new FusedBolt(asList(stages));
+		subject.prepare(stormConf, topologyContextMock, outputCollectorMock);
+		return subject;
+	}
+
+	private static SpringBolt bolt(String id, String signature, String... outputFields) {
+		SpringBolt bolt = new SpringBolt(TestBean.class, signature, outputFields);
+		bolt.setId(id);
+		return bolt;
+	}
+
+	/**
+	 * Tests in-process emits with pass through and scatter.
+	 */
+	@Test
+	public void pipeline() {
+		doReturn("Hello").when(tupleMock).getValueByField("in");
+		doReturn("World").when(tupleMock).getValueByField("x");
+
+		SpringBolt b1 = bolt("b1", "echo(in)", "mid");
+		b1.setPassThroughFields("x");
+		SpringBolt b2 = bolt("b2", "array(mid, x)", "out");
+		b2.setScatterOutput(true);
+		b2.setOutputStreamId("deep");
+
+		FusedBolt subject = fuse(b1, b2);
+		assertEquals("b1+b2", subject.getId());
+		assertEquals("deep", subject.getOutputStreamId());
+
+		subject.declareOutputFields(outputFieldsDeclarerMock);
+		ArgumentCaptor<Fields> fieldsCaptor = ArgumentCaptor.forClass(Fields.class);
+		verify(outputFieldsDeclarerMock).declareStream(eq("deep"), fieldsCaptor.capture());
+		assertEquals(asList("out"), fieldsCaptor.getValue().toList());
+
+		subject.execute(tupleMock);
+
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).emit("deep", tupleMock, asList((Object) "Hello"));
+		order.verify(outputCollectorMock).emit("deep", tupleMock, asList((Object) "World"));
+		order.verify(outputCollectorMock).ack(tupleMock);
+		order.verifyNoMoreInteractions();
+	}
+
+	/**
+	 * Tests failure propagation from a later stage.
+	 */
+	@Test
+	public void stageFailure() {
+		doReturn("Hello").when(tupleMock).getValueByField("in");
+		doReturn(-1L).when(tupleMock).getValueByField("n");
+
+		SpringBolt b1 = bolt("b1", "echo(in)", "mid");
+		b1.setPassThroughFields("n");
+		SpringBolt b2 = bolt("b2", "sleep(n, mid)", "out");
+
+		FusedBolt subject = fuse(b1, b2);
+		subject.execute(tupleMock);
+
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).reportError(isA(IllegalArgumentException.class));
+		order.verify(outputCollectorMock).fail(tupleMock);
+		order.verifyNoMoreInteractions();
+	}
+
+	/**
+	 * Tests that failures on unanchored stages don't fail the input.
+	 */
+	@Test
+	public void unanchoredStageFailure() {
+		doReturn("Hello").when(tupleMock).getValueByField("in");
+		doReturn(-1L).when(tupleMock).getValueByField("n");
+
+		SpringBolt b1 = bolt("b1", "echo(in)", "mid");
+		b1.setPassThroughFields("n");
+		b1.setDoAnchor(false);
+		SpringBolt b2 = bolt("b2", "sleep(n, mid)", "out");
+		SpringBolt b3 = bolt("b3", "echo(out)", "last");
+
+		FusedBolt subject = fuse(b1, b2, b3);
+		subject.execute(tupleMock);
+
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).reportError(isA(IllegalArgumentException.class));
+		order.verify(outputCollectorMock).ack(tupleMock);
+		order.verifyNoMoreInteractions();
+	}
+
+	/**
+	 * Tests the executions per stage.
+	 */
+	@Test
+	public void metric() {
+		doReturn("Hello").when(tupleMock).getValueByField("in");
+
+		FusedBolt subject = fuse(bolt("b1", "echo(in)", "mid"), bolt("b2", "echo(mid)", "out"));
+		ArgumentCaptor<IMetric> metricCaptor = ArgumentCaptor.forClass(IMetric.class);
+		verify(topologyContextMock).registerMetric(eq("breeze-fused"), metricCaptor.capture(), eq(60));
+
+		subject.execute(tupleMock);
+		subject.execute(tupleMock);
+
+		Map<String,Map<String,Object>> values = (Map) metricCaptor.getValue().getValueAndReset();
+		assertEquals(2L, values.get("b1").get("executed"));
+		assertEquals(2L, values.get("b2").get("executed"));
+		values = (Map) metricCaptor.getValue().getValueAndReset();
+		assertEquals(0L, values.get("b2").get("executed"));
+	}
+
+}
@@ -0,0 +1,128 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.Config;
+import org.apache.storm.Constants;
+import org.apache.storm.task.OutputCollector;
+import org.apache.storm.task.TopologyContext;
+import org.apache.storm.tuple.Tuple;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static eu.icolumbo.breeze.JoinBolt.KEY_FIELD;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests {@link JoinBolt}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class JoinBoltTest {
+
+	@Mock
+	OutputCollector outputCollectorMock;
+
+	@Mock
+	TopologyContext topologyContextMock;
+
+	Map<String,Object> stormConf = new HashMap<>();
+
+
+	@Before
+	public void init() {
+		stormConf.clear();
+		when(topologyContextMock.getThisTaskId()).thenReturn(7);
+	}
+
+	@Test
+	public void fork() {
+		JoinBolt subject = new JoinBolt("f", 1, "a");
+		assertArrayEquals(new String[] {"a", KEY_FIELD}, subject.getOutputFields());
+		assertEquals(StreamGrouping.NONE, subject.getGrouping());
+
+		subject.prepare(stormConf, topologyContextMock, outputCollectorMock);
+		Tuple input = tuple(null, "a", "x");
+		subject.execute(input);
+		subject.execute(input);
+
+		ArgumentCaptor<List> valuesCaptor = ArgumentCaptor.forClass(List.class);
+		verify(outputCollectorMock, times(2)).emit(eq("default"), eq(asList(input)), valuesCaptor.capture());
+		List<List> emits = valuesCaptor.getAllValues();
+		assertEquals("x", emits.get(0).get(0));
+		assertEquals(7L << 32, emits.get(0).get(1));
+		assertNotEquals(emits.get(0).get(1), emits.get(1).get(1));
+		verify(outputCollectorMock, times(2)).ack(input);
+	}
+
+	@Test
+	public void join() {
+		JoinBolt subject = new JoinBolt("j", 2, "a", "b", "c");
+		assertEquals(StreamGrouping.FIELDS, subject.getGrouping());
+		assertArrayEquals(new String[] {KEY_FIELD}, subject.getGroupingFields());
+
+		subject.prepare(stormConf, topologyContextMock, outputCollectorMock);
+		Tuple first = tuple(1L, "a", "x", "c", "z");
+		Tuple other = tuple(2L, "a", "?");
+		Tuple second = tuple(1L, "b", "y");
+		subject.execute(first);
+		subject.execute(other);
+		verifyZeroInteractions(outputCollectorMock);
+
+		subject.execute(second);
+		ArgumentCaptor<List> valuesCaptor = ArgumentCaptor.forClass(List.class);
+		verify(outputCollectorMock).emit(eq("default"), eq(asList(first, second)), valuesCaptor.capture());
+		assertEquals(asList("x", "y", "z"), valuesCaptor.getValue().subList(0, 3));
+		verify(outputCollectorMock).ack(first);
+		verify(outputCollectorMock).ack(second);
+	}
+
+	@Test
+	public void expire() {
+		stormConf.put(Config.TOPOLOGY_MESSAGE_TIMEOUT_SECS, 0);
+		JoinBolt subject = new JoinBolt("j", 2, "a");
+		subject.prepare(stormConf, topologyContextMock, outputCollectorMock);
+
+		Tuple first = tuple(1L, "a", "x");
+		subject.execute(first);
+		subject.execute(tick());
+		verify(outputCollectorMock).fail(first);
+
+		subject.execute(tuple(1L));
+		verify(outputCollectorMock, times(0)).emit(eq("default"), anyList(), anyList());
+	}
+
+	private static Tuple tuple(Long key, String... fieldsAndValues) {
+		Tuple tupleMock = mock(Tuple.class);
+		when(tupleMock.getValueByField(KEY_FIELD)).thenReturn(key);
+		for (int i = 0; i < fieldsAndValues.length; i += 2) {
+			when(tupleMock.contains(fieldsAndValues[i])).thenReturn(true);
+			when(tupleMock.getValueByField(fieldsAndValues[i])).thenReturn(fieldsAndValues[i + 1]);
+		}
+		return tupleMock;
+	}
+
+	private static Tuple tick() {
+		Tuple tickMock = mock(Tuple.class);
+		when(tickMock.getSourceComponent()).thenReturn(Constants.SYSTEM_COMPONENT_ID);
+		when(tickMock.getSourceStreamId()).thenReturn(Constants.SYSTEM_TICK_STREAM_ID);
+		return tickMock;
+	}
+
+}
@@ -0,0 +1,97 @@
+package eu.icolumbo.breeze;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+/**
+ * Tests {@link MethodInvoker}.
+ */
+public class MethodInvokerTest {
+
+	public static class Bean {
+		public String concat(String a, String b) { return a + b; }
+		public long twice(long x) { return 2 * x; }
+		public void nop() {}
+		public static int three() { return 3; }
+		public Object raise(RuntimeException e) { throw e; }
+	}
+
+
+	@Test
+	public void compiled() throws Exception {
+		MethodInvoker subject = invoker(Bean.class, "concat(a, b)");
+		assertTrue("compiled", subject.isCompiled());
+		assertEquals("ab", subject.invoke(new Bean(), new Object[] {"a", "b"}));
+	}
+
+	@Test
+	public void primitiveWidening() throws Exception {
+		MethodInvoker subject = invoker(Bean.class, "twice(x)");
+		assertEquals(84L, subject.invoke(new Bean(), new Object[] {42}));
+	}
+
+	@Test
+	public void voidReturn() throws Exception {
+		MethodInvoker subject = invoker(Bean.class, "nop()");
+		assertNull(subject.invoke(new Bean(), new Object[0]));
+		assertNull(subject.invoke(new Bean(), null));
+	}
+
+	@Test
+	public void staticMethod() throws Exception {
+		MethodInvoker subject = invoker(Bean.class, "three()");
+		assertEquals(3, subject.invoke(null, new Object[0]));
+	}
+
+	@Test
+	public void inheritedMethod() throws Exception {
+		List<Object> bean = new ArrayList<>();
+		MethodInvoker subject = invoker(List.class, "add(x)");
+		assertEquals(true, subject.invoke(bean, new Object[] {"x"}));
+		assertEquals(1, bean.size());
+	}
+
+	@Test
+	public void targetException() throws Exception {
+		IllegalArgumentException cause = new IllegalArgumentException("test");
+		MethodInvoker subject = invoker(Bean.class, "raise(e)");
+		try {
+			subject.invoke(new Bean(), new Object[] {cause});
+			fail("no exception");
+		} catch (InvocationTargetException e) {
+			assertSame(cause, e.getCause());
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void argumentMismatch() throws Exception {
+		invoker(Bean.class, "concat(a, b)").invoke(new Bean(), new Object[] {"a", 8});
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void argumentCountMismatch() throws Exception {
+		invoker(Bean.class, "concat(a, b)").invoke(new Bean(), new Object[] {"a"});
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void nullPrimitive() throws Exception {
+		invoker(Bean.class, "twice(x)").invoke(new Bean(), new Object[] {null});
+	}
+
+	private static MethodInvoker invoker(Class<?> type, String signature) throws Exception {
+		Method method = FunctionSignature.valueOf(signature).findMethod(type);
+		return MethodInvoker.of(method);
+	}
+
+}
@@ -0,0 +1,81 @@
+package eu.icolumbo.breeze;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests {@link RingBuffer}.
+ */
+public class RingBufferTest {
+
+	@Test
+	public void order() {
+		RingBuffer<Integer> subject = new RingBuffer<>(3);
+		assertEquals(4, subject.capacity());
+
+		for (int round = 0; round < 3; ++round) {
+			for (int i = 0; i < 4; ++i)
+				assertTrue("offer " + i, subject.offer(i));
+			assertFalse("full", subject.offer(4));
+			assertEquals(4, subject.size());
+
+			for (int i = 0; i < 4; ++i)
+				assertEquals(Integer.valueOf(i), subject.poll());
+			assertNull("empty", subject.poll());
+			assertEquals(0, subject.size());
+		}
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void noCapacity() {
+		new RingBuffer<>(0);
+	}
+
+	@Test
+	public void concurrency() throws Exception {
+		final RingBuffer<Long> subject = new RingBuffer<>(16);
+		final int producerCount = 3, consumerCount = 3;
+		final long perProducer = 100000;
+		final AtomicLong sum = new AtomicLong(), received = new AtomicLong();
+
+		Thread[] threads = new Thread[producerCount + consumerCount];
+		for (int i = 0; i < producerCount; ++i)
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					for (long n = 1; n <= perProducer; ++n)
+						while (! subject.offer(n)) Thread.yield();
+				}
+			};
+		for (int i = producerCount; i < threads.length; ++i)
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					while (received.get() < producerCount * perProducer) {
+						Long n = subject.poll();
+						if (n == null) {
+							Thread.yield();
+							continue;
+						}
+						sum.addAndGet(n);
+						received.incrementAndGet();
+					}
+				}
+			};
+
+		for (Thread t : threads) t.start();
+		for (Thread t : threads) t.join(10000);
+
+		assertEquals(producerCount * perProducer, received.get());
+		assertEquals(producerCount * perProducer * (perProducer + 1) / 2, sum.get());
+		assertNull(subject.poll());
+	}
+
+}
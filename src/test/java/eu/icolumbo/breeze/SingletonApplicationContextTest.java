@@ -9,10 +9,18 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.context.ApplicationContext;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 
 /**
@@ -50,6 +58,45 @@ public class SingletonApplicationContextTest {
 		SingletonApplicationContext.get(stormConf, topologyContextMock);
 	}
 
+	@Test
+	public void noContextRetry() {
+		stormConf.put("topology.name", "unkown");
+		for (int i = 0; i < 2; ++i) {
+			try {
+				SingletonApplicationContext.get(stormConf);
+				fail("no exception");
+			} catch (BeanDefinitionStoreException e) {
+				// retried, i.e., the failure was not retained
+			}
+		}
+	}
+
+	@Test
+	public void concurrent() throws Exception {
+		final Map<String,Object> conf = new HashMap<>();
+		conf.put("topology.name", "concurrent");
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<ApplicationContext>> results = new ArrayList<>();
+			for (int i = 0; i < 8; ++i)
+				results.add(executor.submit(new Callable<ApplicationContext>() {
+					@Override
+					public ApplicationContext call() {
+						return SingletonApplicationContext.get(conf);
+					}
+				}));
+
+			ApplicationContext first = results.get(0).get();
+			assertEquals("classpath:/concurrent-context.xml", first.getId());
+			for (Future<ApplicationContext> result : results)
+				assertSame(first, result.get());
+			assertSame(first, SingletonApplicationContext.get(conf, topologyContextMock));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	@Test(expected=IllegalStateException.class)
 	public void noConfig() {
 		SingletonApplicationContext.get(stormConf, topologyContextMock);
@@ -1,5 +1,9 @@
 package eu.icolumbo.breeze;
 
+import org.apache.storm.Config;
+import org.apache.storm.Constants;
+import org.apache.storm.generated.GlobalStreamId;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.task.OutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.apache.storm.topology.OutputFieldsDeclarer;
@@ -19,18 +23,25 @@ import org.springframework.expression.spel.SpelEvaluationException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -166,6 +177,385 @@ public class SpringBoltTest {
 		order.verifyNoMoreInteractions();
 	}
 	
+	/**
+	 * Tests emission to the first matching stream.
+	 */
+	@Test
+	public void routes() {
+		when(tupleMock.getValueByField("a")).thenReturn("first");
+		when(tupleMock.getValueByField("b")).thenReturn("second");
+		when(tupleMock.getValueByField("c")).thenReturn("routine");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "array(a, b)", "y");
+		subject.setPassThroughFields("c");
+		subject.setScatterOutput(true);
+		StreamRoute numbers = new StreamRoute("numbers", "n");
+		numbers.setEntryType(Integer.class);
+		subject.addRoute(numbers);
+		StreamRoute shortText = new StreamRoute("short", "text", "size");
+		shortText.setCondition("length() < 6");
+		subject.addRoute(shortText);
+		subject.putOutputBinding("text", "#root");
+		subject.putOutputBinding("size", "length()");
+		run(subject);
+
+		verify(outputFieldsDeclarerMock).declareStream(eq("default"), outputFieldsCaptor.capture());
+		assertEquals(asList("y", "c"), outputFieldsCaptor.getValue().toList());
+		verify(outputFieldsDeclarerMock).declareStream(eq("numbers"), outputFieldsCaptor.capture());
+		assertEquals(asList("n"), outputFieldsCaptor.getValue().toList());
+		verify(outputFieldsDeclarerMock).declareStream(eq("short"), outputFieldsCaptor.capture());
+		assertEquals(asList("text", "size"), outputFieldsCaptor.getValue().toList());
+
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).emit("short", tupleMock, asList((Object) "first", 5));
+		order.verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "second", "routine"));
+		order.verify(outputCollectorMock).ack(tupleMock);
+		order.verifyNoMoreInteractions();
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void routeDuplicate() {
+		SpringBolt subject = new SpringBolt(Object.class, "hashCode()", "hash");
+		subject.addRoute(new StreamRoute("s", "a"));
+		subject.addRoute(new StreamRoute("s", "b"));
+	}
+
+	/**
+	 * Tests lazy scatter of iterators, streams and primitive arrays.
+	 */
+	@Test
+	public void scatterLazy() {
+		when(tupleMock.getValueByField("a")).thenReturn("first");
+		when(tupleMock.getValueByField("b")).thenReturn("second");
+
+		for (String signature : new String[] {"iterate(a, b)", "stream(a, b)"}) {
+			SpringBolt subject = new SpringBolt(TestBean.class, signature, "y");
+			subject.setScatterOutput(true);
+			run(subject);
+		}
+		verify(outputCollectorMock, times(2)).emit("default", tupleMock, asList((Object) "first"));
+		verify(outputCollectorMock, times(2)).emit("default", tupleMock, asList((Object) "second"));
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "numbers()", "n");
+		subject.setScatterOutput(true);
+		run(subject);
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).emit("default", tupleMock, asList((Object) 1));
+		order.verify(outputCollectorMock).emit("default", tupleMock, asList((Object) 2));
+		order.verify(outputCollectorMock).emit("default", tupleMock, asList((Object) 3));
+		verify(outputCollectorMock, times(3)).ack(tupleMock);
+	}
+
+	/**
+	 * Tests field lookups by index for known source streams.
+	 */
+	@Test
+	public void indexedInput() {
+		GlobalStreamId source = new GlobalStreamId("s", "default");
+		doReturn(singletonMap(source, null)).when(topologyContextMock).getThisSources();
+		doReturn(new Fields("x", "in", "pass")).when(topologyContextMock).getComponentOutputFields(source);
+		when(tupleMock.getSourceComponent()).thenReturn("s");
+		when(tupleMock.getSourceStreamId()).thenReturn("default");
+		when(tupleMock.getValue(1)).thenReturn("Hello");
+		when(tupleMock.getValue(2)).thenReturn(9);
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "echo(in)", "out");
+		subject.setPassThroughFields("pass");
+		run(subject);
+		subject.execute(tupleMock);
+
+		verify(outputCollectorMock, times(2)).emit("default", tupleMock, asList((Object) "Hello", 9));
+		verify(tupleMock, never()).getValueByField(anyString());
+	}
+
+	/**
+	 * Tests field lookups by name for unknown source streams.
+	 */
+	@Test
+	public void unknownSourceInput() {
+		GlobalStreamId source = new GlobalStreamId("s", "default");
+		doReturn(singletonMap(source, null)).when(topologyContextMock).getThisSources();
+		doReturn(new Fields("in")).when(topologyContextMock).getComponentOutputFields(source);
+		when(tupleMock.getSourceComponent()).thenReturn("s");
+		when(tupleMock.getSourceStreamId()).thenReturn("other");
+		when(tupleMock.getValueByField("in")).thenReturn("Hello");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "echo(in)", "out");
+		run(subject);
+
+		verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "Hello"));
+		verify(tupleMock, never()).getValue(anyInt());
+	}
+
+	/**
+	 * Tests batch mode with a flush on size.
+	 */
+	@Test
+	public void batch() {
+		Tuple secondMock = mock(Tuple.class);
+		when(tupleMock.getValueByField("in")).thenReturn("a");
+		when(secondMock.getValueByField("in")).thenReturn("b");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "echoAll(in)", "out");
+		subject.setBatchSize(2);
+		run(subject);
+		verifyZeroInteractions(outputCollectorMock);
+
+		subject.execute(secondMock);
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "a"));
+		order.verify(outputCollectorMock).ack(tupleMock);
+		order.verify(outputCollectorMock).emit("default", secondMock, asList((Object) "b"));
+		order.verify(outputCollectorMock).ack(secondMock);
+		order.verifyNoMoreInteractions();
+	}
+
+	/**
+	 * Tests batch mode with a flush on tick tuples.
+	 */
+	@Test
+	public void batchTick() {
+		Tuple tickMock = mock(Tuple.class);
+		when(tickMock.getSourceComponent()).thenReturn(Constants.SYSTEM_COMPONENT_ID);
+		when(tickMock.getSourceStreamId()).thenReturn(Constants.SYSTEM_TICK_STREAM_ID);
+		when(tupleMock.getValueByField("in")).thenReturn("a");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "echoAll(in)", "out");
+		subject.setBatchSize(100);
+		subject.setBatchTimeout(1500);
+		assertEquals(2, subject.getComponentConfiguration().get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS));
+		run(subject);
+		verifyZeroInteractions(outputCollectorMock);
+
+		subject.execute(tickMock);
+		verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "a"));
+		verify(outputCollectorMock).ack(tupleMock);
+		verify(outputCollectorMock, never()).ack(tickMock);
+	}
+
+	/**
+	 * Tests batch mode with a flush on cleanup.
+	 */
+	@Test
+	public void batchCleanup() {
+		SpringBolt subject = new SpringBolt(TestBean.class, "echoAll(in)", "out");
+		subject.setBatchSize(100);
+		run(subject);
+		subject.cleanup();
+
+		verify(outputCollectorMock).emit(eq("default"), same(tupleMock), anyList());
+		verify(outputCollectorMock).ack(tupleMock);
+	}
+
+	/**
+	 * Tests batch mode with a return size mismatch.
+	 */
+	@Test
+	public void batchReturnMismatch() {
+		SpringBolt subject = new SpringBolt(TestBean.class, "ping()", "out");
+		subject.setBatchSize(1 << 10);
+		run(subject);
+		subject.cleanup();
+
+		verify(outputCollectorMock).reportError(isA(IllegalStateException.class));
+		verify(outputCollectorMock).fail(tupleMock);
+		verify(outputCollectorMock, never()).ack(tupleMock);
+	}
+
+	/**
+	 * Tests asynchronous returns emitted in order of completion.
+	 */
+	@Test
+	public void asyncUnordered() {
+		CompletableFuture<String> first = new CompletableFuture<>();
+		CompletableFuture<String> second = new CompletableFuture<>();
+		Tuple secondMock = mock(Tuple.class);
+		when(tupleMock.getValueByField("in")).thenReturn(first);
+		when(secondMock.getValueByField("in")).thenReturn(second);
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "later(in)", "out");
+		assertEquals(1, subject.getComponentConfiguration().get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS));
+		run(subject);
+		subject.execute(secondMock);
+		verifyZeroInteractions(outputCollectorMock);
+
+		second.complete("b");
+		subject.execute(tick());
+		verify(outputCollectorMock).emit("default", secondMock, asList((Object) "b"));
+		verify(outputCollectorMock).ack(secondMock);
+		verify(outputCollectorMock, never()).ack(tupleMock);
+
+		first.complete("a");
+		subject.cleanup();
+		verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "a"));
+		verify(outputCollectorMock).ack(tupleMock);
+	}
+
+	/**
+	 * Tests asynchronous returns emitted in order of invocation.
+	 */
+	@Test
+	public void asyncOrdered() {
+		CompletableFuture<String> first = new CompletableFuture<>();
+		CompletableFuture<String> second = new CompletableFuture<>();
+		Tuple secondMock = mock(Tuple.class);
+		when(tupleMock.getValueByField("in")).thenReturn(first);
+		when(secondMock.getValueByField("in")).thenReturn(second);
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "later(in)", "out");
+		subject.setOrderedCompletion(true);
+		run(subject);
+		subject.execute(secondMock);
+
+		second.complete("b");
+		subject.execute(tick());
+		verifyZeroInteractions(outputCollectorMock);
+
+		first.complete("a");
+		subject.execute(tick());
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "a"));
+		order.verify(outputCollectorMock).ack(tupleMock);
+		order.verify(outputCollectorMock).emit("default", secondMock, asList((Object) "b"));
+		order.verify(outputCollectorMock).ack(secondMock);
+		order.verifyNoMoreInteractions();
+	}
+
+	/**
+	 * Tests an exceptional asynchronous return.
+	 */
+	@Test
+	public void asyncFailure() {
+		CompletableFuture<String> future = new CompletableFuture<>();
+		when(tupleMock.getValueByField("in")).thenReturn(future);
+		CloneNotSupportedException cause = new CloneNotSupportedException();
+		future.completeExceptionally(cause);
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "later(in)", "out");
+		run(subject);
+
+		verify(outputCollectorMock).reportError(cause);
+		verify(outputCollectorMock).fail(tupleMock);
+		verify(outputCollectorMock, never()).ack(tupleMock);
+	}
+
+	/**
+	 * Tests the in-flight limit.
+	 */
+	@Test
+	public void asyncBackpressure() {
+		final CompletableFuture<String> future = new CompletableFuture<>();
+		when(tupleMock.getValueByField("in")).thenReturn(future);
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+				}
+				future.complete("a");
+			}
+		}.start();
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "later(in)", "out");
+		subject.setMaxInFlight(1);
+		run(subject);
+
+		verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "a"));
+		verify(outputCollectorMock).ack(tupleMock);
+	}
+
+	/**
+	 * Tests invocation on a thread pool.
+	 */
+	@Test
+	public void executor() {
+		when(tupleMock.getValueByField("in")).thenReturn("a");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "echo(in)", "out");
+		subject.setExecutor("virtual");
+		subject.setMaxInFlight(1);
+		assertEquals(1, subject.getComponentConfiguration().get(Config.TOPOLOGY_TICK_TUPLE_FREQ_SECS));
+		run(subject);
+
+		verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "a"));
+		verify(outputCollectorMock).ack(tupleMock);
+		subject.cleanup();
+	}
+
+	/**
+	 * Tests serialized invocation per key.
+	 */
+	@Test
+	public void executorOrderingKey() throws Exception {
+		Tuple secondMock = mock(Tuple.class);
+		when(tupleMock.getValueByField("t")).thenReturn(200L);
+		when(tupleMock.getValueByField("x")).thenReturn("a");
+		when(tupleMock.getValueByField("k")).thenReturn("key");
+		when(secondMock.getValueByField("t")).thenReturn(0L);
+		when(secondMock.getValueByField("x")).thenReturn("b");
+		when(secondMock.getValueByField("k")).thenReturn("key");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "sleep(t, x)", "out");
+		subject.setExecutor("4");
+		subject.setOrderingKey("k");
+		run(subject);
+		subject.execute(secondMock);
+		verifyZeroInteractions(outputCollectorMock);
+
+		Thread.sleep(400);
+		subject.execute(tick());
+		InOrder order = inOrder(outputCollectorMock);
+		order.verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "a"));
+		order.verify(outputCollectorMock).ack(tupleMock);
+		order.verify(outputCollectorMock).emit("default", secondMock, asList((Object) "b"));
+		order.verify(outputCollectorMock).ack(secondMock);
+		order.verifyNoMoreInteractions();
+		subject.cleanup();
+	}
+
+	/**
+	 * Tests an invalid thread count.
+	 */
+	@Test(expected=IllegalStateException.class)
+	public void executorMisconfiguration() {
+		SpringBolt subject = new SpringBolt(TestBean.class, "echo(in)", "out");
+		subject.setExecutor("0");
+		run(subject);
+	}
+
+	private static Tuple tick() {
+		Tuple tickMock = mock(Tuple.class);
+		when(tickMock.getSourceComponent()).thenReturn(Constants.SYSTEM_COMPONENT_ID);
+		when(tickMock.getSourceStreamId()).thenReturn(Constants.SYSTEM_TICK_STREAM_ID);
+		return tickMock;
+	}
+
+	/**
+	 * Tests that pruned fields are neither declared nor evaluated.
+	 */
+	@Test
+	public void prunedFields() {
+		doReturn("Hello").when(tupleMock).getValueByField("in");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "echo(in)", "out", "unused");
+		subject.putOutputBinding("out", "#root");
+		subject.putOutputBinding("unused", "noSuchProperty");
+		subject.setPrunedFields("unused");
+		run(subject);
+
+		verify(outputFieldsDeclarerMock).declareStream(eq("default"), outputFieldsCaptor.capture());
+		assertEquals(asList("out"), outputFieldsCaptor.getValue().toList());
+		verify(outputCollectorMock).emit("default", tupleMock, asList((Object) "Hello"));
+		verify(outputCollectorMock).ack(tupleMock);
+		verifyNoMoreInteractions(outputCollectorMock);
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void prunedFieldUnknown() {
+		new SpringBolt(Object.class, "hashCode()", "hash").setPrunedFields("other");
+	}
+
 	@Test(expected=IllegalArgumentException.class)
 	public void passThroughOverlap() {
 		SpringBolt subject = new SpringBolt(Object.class, "hashCode()", "hash");
@@ -191,6 +581,54 @@ public class SpringBoltTest {
 		verify(outputCollectorMock).reportError(isA(SpelEvaluationException.class));
 	}
 
+	/**
+	 * Tests the statistics registration.
+	 */
+	@Test
+	public void metric() {
+		doReturn("Hello").when(tupleMock).getValueByField("in");
+
+		SpringBolt subject = new SpringBolt(TestBean.class, "echo(in)", "out");
+		subject.setId("b1");
+		subject.setMetricSampling(1);
+		run(subject);
+		subject.execute(tupleMock);
+
+		ArgumentCaptor<IMetric> metricCaptor = ArgumentCaptor.forClass(IMetric.class);
+		verify(topologyContextMock).registerMetric(eq("breeze-b1"), metricCaptor.capture(), eq(60));
+		Map<String,Object> values = (Map) metricCaptor.getValue().getValueAndReset();
+		assertEquals(2L, values.get("invocations"));
+		assertEquals(2L, values.get("tuplesIn"));
+		assertEquals(2L, values.get("tuplesOut"));
+		assertEquals(2L, ((Map) values.get("invokeLatencyMillis")).get("count"));
+		assertEquals(2L, ((Map) values.get("mappingLatencyMicros")).get("count"));
+		assertEquals(1.0, ((Map) values.get("scatter")).get("p99"));
+
+		values = (Map) metricCaptor.getValue().getValueAndReset();
+		assertEquals(0L, values.get("invocations"));
+	}
+
+	@Test
+	public void metricExceptions() {
+		SpringBolt subject = new SpringBolt(TestBean.class, "clone()");
+		subject.setId("b1");
+		run(subject);
+
+		ArgumentCaptor<IMetric> metricCaptor = ArgumentCaptor.forClass(IMetric.class);
+		verify(topologyContextMock).registerMetric(eq("breeze-b1"), metricCaptor.capture(), anyInt());
+		Map<String,Object> values = (Map) metricCaptor.getValue().getValueAndReset();
+		assertEquals(singletonMap(CloneNotSupportedException.class.getName(), 1L), values.get("exceptions"));
+		assertEquals(0L, values.get("tuplesOut"));
+	}
+
+	@Test
+	public void metricDisabled() {
+		SpringBolt subject = new SpringBolt(TestBean.class, "nop()");
+		subject.setMetrics(false);
+		run(subject);
+		verify(topologyContextMock, never()).registerMetric(anyString(), any(IMetric.class), anyInt());
+	}
+
 	@Test
 	public void frameworkError() {
 		RuntimeException cause = new RuntimeException("test");
@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import static java.util.Arrays.asList;
@@ -27,6 +28,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 
@@ -96,6 +98,56 @@ public class SpringComponentTest {
 		subject.invoke(new Object[] {null, 8});
 	}
 
+	@Test
+	public void singletonReuse() throws Exception {
+		TestBean bean = new TestBean();
+		doReturn(bean).when(applicationContextMock).getBean(TestBean.class);
+		doReturn(new String[] {"test"}).when(applicationContextMock).getBeanNamesForType(TestBean.class);
+		doReturn(true).when(applicationContextMock).isSingleton("test");
+
+		SpringComponent subject = new SpringComponent(TestBean.class, "ping()") {};
+		subject.setApplicationContext(applicationContextMock);
+		subject.init(stormConf, topologyContextMock);
+		subject.invoke(new Object[0]);
+		subject.invoke(new Object[0]);
+
+		verify(applicationContextMock, times(1)).getBean(TestBean.class);
+	}
+
+	@Test
+	public void prototypeLookup() throws Exception {
+		doReturn(new TestBean()).when(applicationContextMock).getBean(TestBean.class);
+		doReturn(new String[] {"test"}).when(applicationContextMock).getBeanNamesForType(TestBean.class);
+		doReturn(false).when(applicationContextMock).isSingleton("test");
+
+		SpringComponent subject = new SpringComponent(TestBean.class, "ping()") {};
+		subject.setApplicationContext(applicationContextMock);
+		subject.init(stormConf, topologyContextMock);
+		subject.invoke(new Object[0]);
+		subject.invoke(new Object[0]);
+
+		verify(applicationContextMock, times(3)).getBean(TestBean.class);
+	}
+
+	@Test
+	public void resolutionPolicies() throws Exception {
+		doReturn(new TestBean()).when(applicationContextMock).getBean(TestBean.class);
+
+		SpringComponent subject = new SpringComponent(TestBean.class, "ping()") {};
+		assertEquals(BeanResolution.SCOPE, subject.getBeanResolution());
+		subject.setApplicationContext(applicationContextMock);
+
+		subject.setBeanResolution(BeanResolution.ONCE);
+		subject.init(stormConf, topologyContextMock);
+		subject.invoke(new Object[0]);
+		verify(applicationContextMock, times(1)).getBean(TestBean.class);
+
+		subject.setBeanResolution(BeanResolution.INVOCATION);
+		subject.init(stormConf, topologyContextMock);
+		subject.invoke(new Object[0]);
+		verify(applicationContextMock, times(3)).getBean(TestBean.class);
+	}
+
 	@Test
 	public void outputRegistration() {
 		SpringComponent subject = new SpringComponent(Collection.class, "toArray()", "a", "b", "c") {};
@@ -111,6 +163,31 @@ public class SpringComponentTest {
 		assertEquals(2, captor.getValue().fieldIndex("c"));
 	}
 
+	@Test
+	public void outputTypes() {
+		SpringComponent subject = new SpringComponent(TestBean.class, "nullObject()", "id", "message") {};
+		assertEquals(asList(int.class, String.class), new ArrayList<>(subject.getOutputTypes()));
+		subject.putOutputBinding("message", "message.length()");
+		assertEquals(asList(int.class), new ArrayList<>(subject.getOutputTypes()));
+
+		subject = new SpringComponent(TestBean.class, "echoAll(x)", "y") {};
+		assertEquals(asList(List.class), new ArrayList<>(subject.getOutputTypes()));
+		subject.setScatterOutput(true);
+		assertEquals(asList(String.class), new ArrayList<>(subject.getOutputTypes()));
+
+		subject = new SpringComponent(TestBean.class, "later(x)", "y") {};
+		assertEquals(asList(String.class), new ArrayList<>(subject.getOutputTypes()));
+
+		subject = new SpringComponent(TestBean.class, "numbers()", "n") {};
+		assertEquals(asList(int[].class), new ArrayList<>(subject.getOutputTypes()));
+
+		subject = new SpringComponent(TestBean.class, "ping()", "s") {};
+		StreamRoute route = new StreamRoute("data", "id", "message");
+		route.setEntryType(TestBean.Data.class);
+		subject.addRoute(route);
+		assertEquals(asList(String.class, int.class), new ArrayList<>(subject.getOutputTypes()));
+	}
+
 	@Test
 	public void arrayReturns() throws Exception {
 		String[] data = {"a", "b"};
@@ -183,6 +260,24 @@ public class SpringComponentTest {
 		assertEquals(expected, subject.getMapping(new TestBean.Data()));
 	}
 
+	/**
+	 * Runs the bindings beyond the SpEL compilation threshold, followed by a root type change.
+	 */
+	@Test
+	public void compiledBinding() throws Exception {
+		SpringComponent subject = new SpringComponent(TestBean.class, "greet(n)", "message", "number") {};
+		subject.putOutputBinding("number", "id + 1");
+
+		TestBean.Data data = new TestBean.Data();
+		for (int i = 0; i < 500; ++i) {
+			data.setId(i);
+			data.setMessage("#" + i);
+			assertEquals(new Values("#" + i, i + 1), subject.getMapping(data));
+		}
+
+		assertEquals(new Values(null, null), subject.getMapping(new Object()));
+	}
+
 	@Test
 	public void componentConfiguration() {
 		SpringComponent subject = new SpringComponent(Collection.class, "clear()") {};
@@ -1,5 +1,11 @@
 package eu.icolumbo.breeze;
 
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.storm.metric.api.IMetric;
 import org.apache.storm.spout.SpoutOutputCollector;
 import org.apache.storm.task.TopologyContext;
 import org.junit.Before;
@@ -24,10 +30,17 @@ import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -106,6 +119,97 @@ public class SpringSpoutTest {
 		assertEquals(asList((Object) "ding", "dong"), bean);
 	}
 
+	/**
+	 * Tests {@link SpringSpout#setTransactionBatchSize(int) batched} acknowledgement.
+	 */
+	@Test
+	public void ackTransactionBatch() throws Exception {
+		List<Object> bean = new ArrayList<>(asList((Object) "a", "b", "c"));
+		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
+
+		SpringSpout subject = new SpringSpout(bean.getClass(), "toArray()", "x");
+		subject.setScatterOutput(true);
+		subject.setAckSignature("addAll(x)");
+		subject.setTransactionBatchSize(2);
+		subject.setTransactionBatchTimeout(10);
+
+		subject.setApplicationContext(applicationContextMock);
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+
+		ArgumentCaptor<Object> messageIdCaptor = ArgumentCaptor.forClass(Object.class);
+		verify(collectorMock, times(3)).emit(eq("default"), anyList(), messageIdCaptor.capture());
+		List<Object> messageIds = messageIdCaptor.getAllValues();
+
+		subject.ack(messageIds.get(0));
+		assertEquals(3, bean.size());
+		subject.ack(messageIds.get(1));
+		assertEquals(asList((Object) "a", "b", "c", "a", "b"), bean);
+
+		subject.ack(messageIds.get(2));
+		subject.deactivate();
+		assertEquals(asList((Object) "a", "b", "c", "a", "b", "c"), bean);
+
+		subject.ack(messageIds.get(0));
+		Thread.sleep(20);
+		subject.nextTuple();
+		assertEquals(7, bean.size());
+	}
+
+	/**
+	 * Tests batched acknowledgement without a fail signature.
+	 */
+	@Test
+	public void ackOnlyTransactionBatch() throws Exception {
+		List<Object> bean = new ArrayList<>(asList((Object) "a", "b"));
+		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
+
+		SpringSpout subject = new SpringSpout(bean.getClass(), "toArray()", "x");
+		subject.setScatterOutput(true);
+		subject.setAckSignature("addAll(x)");
+		subject.setTransactionBatchSize(2);
+		subject.setTransactionBatchTimeout(10);
+
+		subject.setApplicationContext(applicationContextMock);
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+
+		ArgumentCaptor<Object> messageIdCaptor = ArgumentCaptor.forClass(Object.class);
+		verify(collectorMock, times(2)).emit(eq("default"), anyList(), messageIdCaptor.capture());
+		List<Object> messageIds = messageIdCaptor.getAllValues();
+
+		List<LogEvent> events = new ArrayList<>();
+		Appender appender = capture(events);
+		try {
+			subject.fail(messageIds.get(0));
+			subject.fail(messageIds.get(1));
+			Thread.sleep(20);
+			subject.nextTuple();
+			subject.deactivate();
+			subject.close();
+		} finally {
+			((org.apache.logging.log4j.core.Logger) LogManager.getLogger(SpringSpout.class)).removeAppender(appender);
+		}
+		assertEquals(asList((Object) "a", "b"), bean);
+		assertEquals(Collections.emptyList(), events);
+	}
+
+	/**
+	 * Collects the {@link SpringSpout} log events at warning level or above.
+	 */
+	private static Appender capture(final List<LogEvent> events) {
+		Appender appender = new AbstractAppender("capture", null, null) {
+			@Override
+			public void append(LogEvent event) {
+				if (event.getLevel().isMoreSpecificThan(Level.WARN))
+					events.add(event.toImmutable());
+			}
+		};
+		appender.start();
+		((org.apache.logging.log4j.core.Logger) LogManager.getLogger(SpringSpout.class)).addAppender(appender);
+		return appender;
+	}
+
 	/**
 	 * Tests the {@link SpringSpout#setFailSignature(String) fail signature} effect
 	 * on a {@link SpringSpout#setOutputStreamId(String) custom stream ID} with collection fields.
@@ -131,6 +235,196 @@ public class SpringSpoutTest {
 		assertEquals(Collections.emptyList(), bean);
 	}
 
+	/**
+	 * Tests the {@link SpringSpout#setMaxReplays(int) replays} before the fail signature.
+	 */
+	@Test
+	public void replay() throws Exception {
+		List<Object> bean = new ArrayList<>();
+		bean.add("dang");
+		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
+
+		SpringSpout subject = new SpringSpout(bean.getClass(), "clone()", "x");
+		subject.setFailSignature("clear()");
+		subject.setMaxReplays(2);
+		subject.setReplayDelays(0, 10);
+
+		subject.setApplicationContext(applicationContextMock);
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+
+		ArgumentCaptor<Object> messageIdCaptor = ArgumentCaptor.forClass(Object.class);
+		verify(collectorMock).emit(eq("default"), eq(asList((Object) bean)), messageIdCaptor.capture());
+		Object messageId = messageIdCaptor.getValue();
+
+		subject.fail(messageId);
+		subject.nextTuple();
+		verify(collectorMock, times(2)).emit("default", asList((Object) bean), messageId);
+
+		subject.fail(messageId);
+		subject.nextTuple();
+		verify(collectorMock, times(2)).emit(eq("default"), anyList(), eq(messageId));
+		Thread.sleep(20);
+		subject.nextTuple();
+		verify(collectorMock, times(3)).emit(eq("default"), anyList(), eq(messageId));
+		assertEquals(1, bean.size());
+
+		subject.fail(messageId);
+		assertEquals(Collections.emptyList(), bean);
+	}
+
+	/**
+	 * Tests the fail signature for pending replays on close.
+	 */
+	@Test
+	public void replayAbandon() throws Exception {
+		List<Object> bean = new ArrayList<>();
+		bean.add("dang");
+		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
+
+		SpringSpout subject = new SpringSpout(bean.getClass(), "clone()", "x");
+		subject.setFailSignature("clear()");
+		subject.setMaxReplays(1);
+
+		subject.setApplicationContext(applicationContextMock);
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+
+		ArgumentCaptor<Object> messageIdCaptor = ArgumentCaptor.forClass(Object.class);
+		verify(collectorMock).emit(eq("default"), eq(asList((Object) bean)), messageIdCaptor.capture());
+		subject.fail(messageIdCaptor.getValue());
+		assertEquals(1, bean.size());
+
+		subject.close();
+		assertEquals(Collections.emptyList(), bean);
+	}
+
+	/**
+	 * Tests the fallback when the {@link SpringSpout#setReplayCapacity(int) replay capacity} is reached.
+	 */
+	@Test
+	public void replayOverflow() throws Exception {
+		SpringSpout subject = new SpringSpout(TestBean.class, "numbers()", "n");
+		subject.setScatterOutput(true);
+		subject.setMaxReplays(1);
+		subject.setReplayCapacity(1);
+
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+
+		ArgumentCaptor<Object> messageIdCaptor = ArgumentCaptor.forClass(Object.class);
+		verify(collectorMock).emit(eq("default"), eq(asList((Object) 1)), messageIdCaptor.capture());
+		verify(collectorMock).emit("default", asList((Object) 2));
+		verify(collectorMock).emit("default", asList((Object) 3));
+
+		subject.ack(messageIdCaptor.getValue());
+		subject.nextTuple();
+		verify(collectorMock, times(2)).emit(eq("default"), eq(asList((Object) 1)), anyObject());
+	}
+
+	/**
+	 * Tests the continuation of scattered returns over the emit budget.
+	 */
+	@Test
+	public void routes() throws Exception {
+		SpringSpout subject = new SpringSpout(TestBean.class, "numbers()", "n");
+		subject.setScatterOutput(true);
+		StreamRoute odd = new StreamRoute("odd", "o");
+		odd.setCondition("#root % 2 == 1");
+		subject.addRoute(odd);
+
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+		verify(collectorMock).emit("odd", asList((Object) 1));
+		verify(collectorMock).emit("default", asList((Object) 2));
+		verify(collectorMock).emit("odd", asList((Object) 3));
+		verifyNoMoreInteractions(collectorMock);
+	}
+
+	@Test
+	public void emitBudget() throws Exception {
+		SpringSpout subject = new SpringSpout(TestBean.class, "numbers()", "n");
+		subject.setScatterOutput(true);
+		subject.setEmitBudget(2);
+
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+		verify(collectorMock).emit("default", asList((Object) 1));
+		verify(collectorMock).emit("default", asList((Object) 2));
+		verifyNoMoreInteractions(collectorMock);
+
+		subject.nextTuple();
+		verify(collectorMock).emit("default", asList((Object) 3));
+		verifyNoMoreInteractions(collectorMock);
+
+		subject.nextTuple();
+		verify(collectorMock, times(2)).emit("default", asList((Object) 1));
+	}
+
+	/**
+	 * Tests background reads.
+	 */
+	@Test
+	public void prefetch() throws Exception {
+		SpringSpout subject = new SpringSpout(TestBean.class, "ping()", "out");
+		subject.setPrefetchThreads(2);
+		subject.setPrefetchCapacity(3);
+		subject.setEmitBudget(2);
+		subject.open(stormConf, contextMock, collectorMock);
+		verify(contextMock).registerMetric(eq("breeze-prefetch"), isA(IMetric.class), eq(60));
+
+		Thread.sleep(50);
+		subject.nextTuple();
+		verify(collectorMock, times(2)).emit("default", asList((Object) "ping"));
+		subject.nextTuple();
+		verify(collectorMock, times(4)).emit("default", asList((Object) "ping"));
+		subject.close();
+		verifyNoMoreInteractions(collectorMock);
+	}
+
+	/**
+	 * Tests background read failures.
+	 */
+	@Test
+	public void prefetchException() throws Exception {
+		SpringSpout subject = new SpringSpout(TestBean.class, "clone()", "copy");
+		subject.setPrefetchThreads(1);
+		subject.open(stormConf, contextMock, collectorMock);
+
+		Thread.sleep(20);
+		subject.nextTuple();
+		subject.close();
+		verify(collectorMock, atLeastOnce()).reportError(isA(CloneNotSupportedException.class));
+		verify(collectorMock, atMost(64)).reportError(isA(CloneNotSupportedException.class));
+		verify(collectorMock, never()).emit(anyString(), anyList());
+	}
+
+	/**
+	 * Tests the fail signature for buffered reads on close.
+	 */
+	@Test
+	public void prefetchDrop() throws Exception {
+		List<Object> bean = new ArrayList<>();
+		bean.add("dang");
+		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
+
+		SpringSpout subject = new SpringSpout(bean.getClass(), "clone()", "x");
+		subject.setFailSignature("clear()");
+		subject.setPrefetchThreads(1);
+		subject.setPrefetchCapacity(2);
+
+		subject.setApplicationContext(applicationContextMock);
+		subject.open(stormConf, contextMock, collectorMock);
+		ArgumentCaptor<IMetric> metricCaptor = ArgumentCaptor.forClass(IMetric.class);
+		verify(contextMock).registerMetric(eq("breeze-prefetch"), metricCaptor.capture(), eq(60));
+		for (int i = 0; i < 1000 && ((Map<?,?>) metricCaptor.getValue().getValueAndReset()).get("occupancy").equals(0); ++i)
+			Thread.sleep(1);
+		subject.close();
+
+		verify(collectorMock, never()).emit(anyString(), anyList(), anyObject());
+		assertEquals(Collections.emptyList(), bean);
+	}
+
 	@Test
 	public void operationException() throws Exception {
 		SpringSpout subject = new SpringSpout(TestBean.class, "clone()", "copy");
@@ -161,7 +455,7 @@ public class SpringSpoutTest {
 
 		BufferedReader bean = mock(BufferedReader.class);
 		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
-		when(bean.readLine()).thenThrow(new AcceptPendingException(), new EOFException());
+		when(bean.readLine()).thenThrow(new AcceptPendingException(), new EOFException()).thenReturn("x");
 
 		SpringSpout subject = new SpringSpout(bean.getClass(), "readLine()", "line");
 		subject.setApplicationContext(applicationContextMock);
@@ -171,12 +465,93 @@ public class SpringSpoutTest {
 
 		long start = System.currentTimeMillis();
 		subject.nextTuple();
-		long acceptEnd = System.currentTimeMillis();
 		subject.nextTuple();
-		long end = System.currentTimeMillis();
+		assertTrue("no blocking", System.currentTimeMillis() - start < acceptDelay);
+		verify(bean, times(1)).readLine();
+
+		Thread.sleep(acceptDelay);
+		subject.nextTuple();
+		subject.nextTuple();
+		verify(bean, times(2)).readLine();
+		verifyZeroInteractions(collectorMock);
+
+		Thread.sleep(ioDelay);
+		subject.nextTuple();
+		verify(bean, times(3)).readLine();
+		verify(collectorMock).emit("default", asList((Object) "x"));
+	}
+
+	/**
+	 * Tests exponential backoff with a limit.
+	 */
+	@Test
+	public void operationBackoff() throws Exception {
+		BufferedReader bean = mock(BufferedReader.class);
+		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
+		when(bean.readLine()).thenThrow(new EOFException());
+
+		SpringSpout subject = new SpringSpout(bean.getClass(), "readLine()", "line");
+		subject.setApplicationContext(applicationContextMock);
+		subject.putDelayException(IOException.class, 20);
+		subject.setBackoffMultiplier(4);
+		subject.setMaxBackoff(60);
+		subject.open(stormConf, contextMock, collectorMock);
+
+		subject.nextTuple();
+		Thread.sleep(30);
+		subject.nextTuple();
+		verify(bean, times(2)).readLine();
+
+		// 60ms instead of 80ms
+		Thread.sleep(30);
+		subject.nextTuple();
+		verify(bean, times(2)).readLine();
+		Thread.sleep(40);
+		subject.nextTuple();
+		verify(bean, times(3)).readLine();
+		verifyZeroInteractions(collectorMock);
+	}
+
+	/**
+	 * Tests the statistics on a delay exception.
+	 */
+	@Test
+	public void metricBackoff() throws Exception {
+		BufferedReader bean = mock(BufferedReader.class);
+		doReturn(bean).when(applicationContextMock).getBean(bean.getClass());
+		when(bean.readLine()).thenThrow(new EOFException());
+
+		SpringSpout subject = new SpringSpout(bean.getClass(), "readLine()", "line");
+		subject.setId("s1");
+		subject.setApplicationContext(applicationContextMock);
+		subject.putDelayException(IOException.class, 20);
+		subject.open(stormConf, contextMock, collectorMock);
+		subject.nextTuple();
+
+		ArgumentCaptor<IMetric> metricCaptor = ArgumentCaptor.forClass(IMetric.class);
+		verify(contextMock).registerMetric(eq("breeze-s1"), metricCaptor.capture(), eq(60));
+		Map<String,Object> values = (Map) metricCaptor.getValue().getValueAndReset();
+		assertEquals(1L, values.get("invocations"));
+		assertEquals(20L, values.get("backoffMillis"));
+		assertEquals(Collections.singletonMap(EOFException.class.getName(), 1L), values.get("exceptions"));
+	}
+
+	/**
+	 * Tests the wait on empty reads.
+	 */
+	@Test
+	public void idle() throws Exception {
+		long delay = 20;
+		SpringSpout subject = new SpringSpout(TestBean.class, "nullObject()", "x");
+		subject.setScatterOutput(true);
+		subject.setIdleStrategy(IdleStrategy.SLEEP);
+		subject.setIdleDelay(delay);
+		subject.open(stormConf, contextMock, collectorMock);
+
+		long start = System.currentTimeMillis();
+		subject.nextTuple();
+		assertTrue("idle delay", delay <= System.currentTimeMillis() - start);
 		verifyZeroInteractions(collectorMock);
-		assertTrue("accept delay", acceptDelay <= acceptEnd - start);
-		assertTrue("io delay", acceptDelay <= end - acceptEnd);
 	}
 
 	@Test
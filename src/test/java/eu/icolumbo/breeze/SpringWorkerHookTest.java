@@ -0,0 +1,49 @@
+package eu.icolumbo.breeze;
+
+import org.apache.storm.task.WorkerTopologyContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertNotNull;
+
+
+/**
+ * Tests {@link SpringWorkerHook}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SpringWorkerHookTest {
+
+	@Mock
+	WorkerTopologyContext workerTopologyContextMock;
+
+
+	@Test
+	public void warmUp() {
+		Map<String,Object> stormConf = new HashMap<>();
+		stormConf.put("topology.name", "simple");
+
+		SpringWorkerHook subject = new SpringWorkerHook();
+		subject.start(stormConf, workerTopologyContextMock);
+		subject.shutdown();
+
+		ApplicationContext context = SingletonApplicationContext.get(stormConf);
+		assertNotNull(context.getBean(TestBean.class));
+	}
+
+	@Test
+	public void warmUpFailure() {
+		Map<String,Object> stormConf = new HashMap<>();
+		stormConf.put("topology.name", "unkown");
+		new SpringWorkerHook().start(stormConf, workerTopologyContextMock);
+
+		stormConf.clear();
+		new SpringWorkerHook().start(stormConf, workerTopologyContextMock);
+	}
+
+}
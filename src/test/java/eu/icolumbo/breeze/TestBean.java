@@ -1,5 +1,10 @@
 package eu.icolumbo.breeze;
 
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * @author Pascal S. de Kloe
@@ -33,6 +38,15 @@ public class TestBean {
 		}
 	}
 
+	public static class Pair {
+		public final Data left, right;
+
+		public Pair(Data left, Data right) {
+			this.left = left;
+			this.right = right;
+		}
+	}
+
 
 	public void nop() {
 	}
@@ -45,14 +59,43 @@ public class TestBean {
 		return x;
 	}
 
+	public List<String> echoAll(List<String> x) {
+		return x;
+	}
+
+	public CompletableFuture<String> later(CompletableFuture<String> x) {
+		return x;
+	}
+
+	public String sleep(long millis, String x) throws InterruptedException {
+		Thread.sleep(millis);
+		return x;
+	}
+
 	public String[] array(String a, String b) {
 		return new String[] {a, b};
 	}
 
+	public Iterator<String> iterate(String a, String b) {
+		return Arrays.asList(a, b).iterator();
+	}
+
+	public Stream<String> stream(String a, String b) {
+		return Stream.of(a, b);
+	}
+
+	public int[] numbers() {
+		return new int[] {1, 2, 3};
+	}
+
 	public Data nullObject() {
 		return null;
 	}
 
+	public Pair nullPair() {
+		return null;
+	}
+
 	public String getGreeting() {
 		return greeting;
 	}
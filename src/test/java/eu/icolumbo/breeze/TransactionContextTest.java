@@ -0,0 +1,110 @@
+package eu.icolumbo.breeze;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.storm.Config;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+
+/**
+ * Tests {@link TransactionContext} and {@link TransactionContextSerializer}.
+ */
+public class TransactionContextTest {
+
+	@Test
+	public void longKey() {
+		TransactionContext subject = TransactionContext.of(new Object[] {9L}, new Object[] {9L});
+		assertTrue(subject instanceof TransactionContext.LongKey);
+		assertArrayEquals(new Object[] {9L}, subject.getAckParams());
+		assertArrayEquals(new Object[] {9L}, subject.getFailParams());
+	}
+
+	@Test
+	public void intKey() {
+		TransactionContext subject = TransactionContext.of(null, new Object[] {7});
+		assertTrue(subject instanceof TransactionContext.IntKey);
+		assertNull(subject.getAckParams());
+		assertArrayEquals(new Object[] {7}, subject.getFailParams());
+	}
+
+	@Test
+	public void shared() {
+		TransactionContext subject = TransactionContext.of(new Object[] {"a", 1}, new Object[] {"a", 1});
+		assertSame(subject.getAckParams(), subject.getFailParams());
+		assertEquals(TransactionContext.class, subject.getClass());
+	}
+
+	@Test
+	public void distinct() {
+		TransactionContext subject = TransactionContext.of(new Object[] {1L}, new Object[] {2L});
+		assertEquals(TransactionContext.class, subject.getClass());
+		assertArrayEquals(new Object[] {1L}, subject.getAckParams());
+		assertArrayEquals(new Object[] {2L}, subject.getFailParams());
+
+		subject = TransactionContext.of(new Object[] {null}, null);
+		assertArrayEquals(new Object[] {null}, subject.getAckParams());
+		assertNull(subject.getFailParams());
+	}
+
+	@Test
+	public void mutableKey() {
+		TransactionContext subject = TransactionContext.of(new Object[] {1L}, new Object[] {1L});
+		subject.setAckParams(new Object[] {"a"});
+		assertArrayEquals(new Object[] {"a"}, subject.getAckParams());
+		assertArrayEquals(new Object[] {1L}, subject.getFailParams());
+
+		subject.setFailParams(null);
+		assertNull(subject.getFailParams());
+
+		Kryo kryo = new Kryo();
+		kryo.register(TransactionContext.class, new TransactionContextSerializer());
+		kryo.register(TransactionContext.LongKey.class, new TransactionContextSerializer());
+		Output output = new Output(64, -1);
+		kryo.writeClassAndObject(output, subject);
+		TransactionContext copy = (TransactionContext) kryo.readClassAndObject(new Input(output.toBytes()));
+		assertArrayEquals(new Object[] {"a"}, copy.getAckParams());
+		assertNull(copy.getFailParams());
+	}
+
+	@Test
+	public void serialization() {
+		TransactionContext[] samples = {
+				TransactionContext.of(new Object[] {Long.MIN_VALUE}, null),
+				TransactionContext.of(new Object[] {-1}, new Object[] {-1}),
+				TransactionContext.of(new Object[] {"x", 2}, new Object[] {"x", 2}),
+				TransactionContext.of(new Object[] {"y"}, null),
+				new TransactionContext()
+		};
+
+		Kryo kryo = new Kryo();
+		TransactionContextSerializer serializer = new TransactionContextSerializer();
+		for (TransactionContext sample : samples)
+			kryo.register(sample.getClass(), serializer);
+
+		for (TransactionContext sample : samples) {
+			Output output = new Output(64, -1);
+			kryo.writeClassAndObject(output, sample);
+			Object copy = kryo.readClassAndObject(new Input(output.toBytes()));
+			assertEquals(sample.getClass(), copy.getClass());
+			assertArrayEquals(sample.getAckParams(), ((TransactionContext) copy).getAckParams());
+			assertArrayEquals(sample.getFailParams(), ((TransactionContext) copy).getFailParams());
+		}
+	}
+
+	@Test
+	public void registration() {
+		Config config = new Config();
+		TransactionContextSerializer.register(config);
+		assertEquals(3, ((List<?>) config.get(Config.TOPOLOGY_KRYO_REGISTER)).size());
+	}
+
+}
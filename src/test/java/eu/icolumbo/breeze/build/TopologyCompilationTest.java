@@ -2,19 +2,27 @@ package eu.icolumbo.breeze.build;
 
 import eu.icolumbo.breeze.ConfiguredBolt;
 import eu.icolumbo.breeze.ConfiguredSpout;
+import eu.icolumbo.breeze.FusedBolt;
+import eu.icolumbo.breeze.JoinBolt;
 import eu.icolumbo.breeze.SpringBolt;
 import eu.icolumbo.breeze.SpringSpout;
+import eu.icolumbo.breeze.StreamGrouping;
+import eu.icolumbo.breeze.StreamRoute;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+import static java.util.Arrays.asList;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -120,6 +128,248 @@ public class TopologyCompilationTest {
 		assertPassThrough("b2");
 	}
 
+	@Test
+	public void groupingFields() {
+		subject.add(spout("s1", "f()", "feed", "key"));
+		subject.add(bolt("b1", "f(feed)", "a"));
+		SpringBolt b2 = bolt("b2", "f(a)", "b");
+		b2.setGrouping(StreamGrouping.FIELDS);
+		b2.setGroupingFields("key");
+		subject.add(b2);
+		SpringBolt b3 = bolt("b3", "f(b)");
+		b3.setGrouping(StreamGrouping.FIELDS);
+		b3.setGroupingFields("c");
+		subject.add(b3);
+		subject.add(bolt("b4", "f(b)", "c"));
+
+		assertPipeline("s1", "b1", "b2", "b4", "b3");
+		assertPassThrough("b1", "key");
+		assertPassThrough("b2");
+		assertPassThrough("b4", "b");
+	}
+
+	@Test
+	public void partialKeyMerge() {
+		subject.add(spout("s1", "f()", "feed", "key"));
+		SpringBolt b1 = bolt("b1", "f(feed)", "a");
+		b1.setGrouping(StreamGrouping.PARTIAL_KEY);
+		b1.setGroupingFields("key");
+		b1.setMergeSignature("f(key, a)");
+		subject.add(b1);
+		subject.add(bolt("b2", "f(a, feed)"));
+
+		assertPipeline("s1", "b1", "b2");
+		assertPassThrough("b1", "feed", "key");
+		assertArrayEquals(new String[] {"feed"}, b1.getMergeBolt().getPassThroughFields());
+		assertEquals("b1-merge", b1.getMergeBolt().getId());
+		assertEquals(StreamGrouping.FIELDS, b1.getMergeBolt().getGrouping());
+	}
+
+	@Test
+	public void fuse() {
+		subject.add(spout("s1", "f()", "feed", "key"));
+		subject.add(bolt("b1", "f(feed)", "a"));
+		subject.add(bolt("b2", "f(a)", "b"));
+		SpringBolt b3 = bolt("b3", "f(b)", "c");
+		b3.setGrouping(StreamGrouping.FIELDS);
+		b3.setGroupingFields("key");
+		subject.add(b3);
+		subject.add(bolt("b4", "f(c)", "d"));
+		SpringBolt b5 = bolt("b5", "f(d)", "e");
+		b5.setParallelism(2);
+		subject.add(b5);
+		subject.run();
+		subject.verify();
+		subject.fuse();
+
+		List<ConfiguredBolt> line = subject.get(spoutById("s1"));
+		assertEquals(3, line.size());
+		assertEquals("b1+b2", line.get(0).getId());
+		assertEquals(FusedBolt.class, line.get(0).getClass());
+		assertArrayEquals(new String[] {"key"}, line.get(0).getPassThroughFields());
+		assertEquals("b3+b4", line.get(1).getId());
+		assertEquals(StreamGrouping.FIELDS, line.get(1).getGrouping());
+		assertEquals("b5", line.get(2).getId());
+	}
+
+	@Test
+	public void fuseShared() {
+		subject.add(spout("s1", "f()", "a"));
+		subject.add(spout("s2", "f()", "b"));
+		subject.add(bolt("b1", "f(b)", "a"));
+		subject.add(bolt("b2", "f(a)", "c"));
+		subject.add(bolt("b3", "f(c)"));
+		subject.run();
+		subject.verify();
+		subject.fuse();
+
+		assertEquals(2, subject.get(spoutById("s1")).size());
+		assertEquals(3, subject.get(spoutById("s2")).size());
+	}
+
+	@Test
+	public void fanOut() {
+		subject.add(spout("s1", "f()", "feed"));
+		subject.add(bolt("b1", "f(feed)", "a"));
+		subject.add(bolt("b2", "f(feed)", "b"));
+		subject.add(bolt("b3", "f(a, b)", "c"));
+		subject.add(bolt("b4", "f(c, feed)"));
+		subject.run();
+		subject.verify();
+		subject.fanOut();
+
+		List<List<ConfiguredBolt>> levels = subject.getLevels(spoutById("s1"));
+		assertEquals(5, levels.size());
+		JoinBolt fork = (JoinBolt) levels.get(0).get(0);
+		assertEquals("b1+b2-fork", fork.getId());
+		assertArrayEquals(new String[] {"feed"}, fork.getInputFields());
+		assertEquals(2, levels.get(1).size());
+		JoinBolt join = (JoinBolt) levels.get(2).get(0);
+		assertEquals(2, join.getBranches());
+		assertArrayEquals(new String[] {"a", "b", "feed"}, join.getInputFields());
+		assertEquals("b3", levels.get(3).get(0).getId());
+		assertEquals("b4", levels.get(4).get(0).getId());
+
+		assertPassThrough("b1", "feed", JoinBolt.KEY_FIELD);
+		assertPassThrough("b2", JoinBolt.KEY_FIELD);
+		assertPassThrough("b3", "feed");
+		assertPassThrough("b4");
+	}
+
+	@Test
+	public void fanOutLeaves() {
+		subject.add(spout("s1", "f()", "feed"));
+		subject.add(bolt("b1", "f(feed)", "a"));
+		subject.add(bolt("b2", "f(a)"));
+		subject.add(bolt("b3", "f(a)"));
+		subject.run();
+		subject.verify();
+		subject.fanOut();
+
+		List<List<ConfiguredBolt>> levels = subject.getLevels(spoutById("s1"));
+		assertEquals(2, levels.size());
+		assertEquals("b1", levels.get(0).get(0).getId());
+		assertEquals(2, levels.get(1).size());
+		assertPassThrough("b1");
+		assertPassThrough("b2");
+		assertPassThrough("b3");
+	}
+
+	@Test
+	public void fanOutSequential() {
+		subject.add(spout("s1", "f()", "feed"));
+		subject.add(bolt("b1", "f(feed)", "a"));
+		subject.add(bolt("b2", "f(a)", "b"));
+		subject.run();
+		subject.verify();
+		subject.fanOut();
+
+		assertEquals(null, subject.getLevels(spoutById("s1")));
+		assertPipeline("s1", "b1", "b2");
+	}
+
+	@Test
+	public void prune() {
+		SpringSpout s1 = spout("s1", "f()", "feed", "unused");
+		subject.add(s1);
+		SpringBolt b1 = bolt("b1", "f(feed)", "a", "b");
+		SpringBolt b2 = bolt("b2", "f(a)", "c");
+		subject.add(b1, b2);
+		subject.run();
+		subject.verify();
+		subject.prune();
+
+		assertArrayEquals(new String[] {"unused"}, s1.getPrunedFields());
+		assertArrayEquals(new String[] {"feed"}, s1.getLiveOutputFields());
+		assertArrayEquals(new String[] {"b"}, b1.getPrunedFields());
+		assertArrayEquals(new String[] {"c"}, b2.getPrunedFields());
+		assertArrayEquals(new String[0], b2.getLiveOutputFields());
+	}
+
+	@Test
+	public void prunePassThrough() {
+		SpringSpout s1 = spout("s1", "f()", "feed", "key");
+		subject.add(s1);
+		SpringBolt b1 = bolt("b1", "f(feed)", "a", "b");
+		b1.setGrouping(StreamGrouping.PARTIAL_KEY);
+		b1.setGroupingFields("key");
+		b1.setMergeSignature("f(key, a)");
+		subject.add(b1);
+		SpringBolt b2 = bolt("b2", "f(feed)", "x");
+		subject.add(b2, bolt("b3", "f(a, x)"));
+		subject.run();
+		subject.verify();
+		subject.prune();
+
+		assertArrayEquals(new String[0], s1.getPrunedFields());
+		assertArrayEquals(new String[] {"b"}, b1.getPrunedFields());
+		SpringBolt merge = (SpringBolt) b1.getMergeBolt();
+		assertArrayEquals(new String[] {"b"}, merge.getPrunedFields());
+		assertArrayEquals(new String[0], b2.getPrunedFields());
+	}
+
+	@Test
+	public void pruneFanOut() {
+		SpringSpout s1 = spout("s1", "f()", "feed", "unused");
+		subject.add(s1);
+		SpringBolt b1 = bolt("b1", "f(feed)", "a", "y");
+		SpringBolt b2 = bolt("b2", "f(feed)", "b");
+		SpringBolt b3 = bolt("b3", "f(a, b)", "z");
+		subject.add(b1, b2, b3);
+		subject.run();
+		subject.verify();
+		subject.fanOut();
+		subject.prune();
+
+		assertArrayEquals(new String[] {"unused"}, s1.getPrunedFields());
+		assertArrayEquals(new String[] {"y"}, b1.getPrunedFields());
+		assertArrayEquals(new String[0], b2.getPrunedFields());
+		assertArrayEquals(new String[] {"z"}, b3.getPrunedFields());
+	}
+
+	@Test
+	public void routes() {
+		SpringSpout s1 = spout("s1", "f()", "feed");
+		s1.addRoute(new StreamRoute("alerts", "alert", "level"));
+		subject.add(s1);
+		SpringBolt b1 = bolt("b1", "f(feed)", "a");
+		b1.addRoute(new StreamRoute("big", "big"));
+		SpringBolt b4 = bolt("b4", "f(big)", "y");
+		b4.addRoute(new StreamRoute("again", "big"));
+		SpringBolt b2 = bolt("b2", "f(alert)", "z");
+		SpringBolt b3 = bolt("b3", "f(z, level)");
+		subject.add(b1, b2, b3, b4, bolt("b5", "f(a)"));
+		subject.run();
+		subject.verify();
+
+		assertPipeline("s1", "b1", "b5");
+		List<TopologyCompilation.Branch> branches = new ArrayList<>(subject.getBranches());
+		assertEquals(3, branches.size());
+		assertBranch(branches.get(0), "s1", "alerts", "b2", "b3");
+		assertBranch(branches.get(1), "b1", "big", "b4");
+		assertBranch(branches.get(2), "b4", "again");
+		assertArrayEquals(new String[] {"level"}, b2.getPassThroughFields());
+		assertArrayEquals(new String[0], b3.getPassThroughFields());
+
+		subject.fuse();
+		assertPipeline("s1", "b1", "b5");
+		assertBranch(branches.get(0), "s1", "alerts", "b2+b3");
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void mergeWithoutPartialKey() {
+		SpringBolt bolt = bolt("b1", "f(feed)");
+		bolt.setMergeSignature("f(feed)");
+		subject.add(bolt);
+	}
+
+	@Test(expected=IllegalStateException.class)
+	public void groupingWithoutFields() {
+		SpringBolt bolt = bolt("b1", "f(feed)");
+		bolt.setGrouping(StreamGrouping.FIELDS);
+		subject.add(bolt);
+	}
+
 	@Test
 	public void incomplete() {
 		subject.add(spout("s1", "f()", "feed"));
@@ -165,6 +415,73 @@ public class TopologyCompilationTest {
 		assertEquals("field names", expected, actual);
 	}
 
+	/**
+	 * Tests the indexed binding against plain scans on random topologies.
+	 */
+	@Test
+	public void scanEquivalence() {
+		Random random = new Random(42);
+		for (int round = 0; round < 50; ++round) {
+			subject.clear();
+			List<SpringSpout> spouts = new ArrayList<>();
+			for (int i = random.nextInt(4); i >= 0; --i)
+				spouts.add(spout("s" + i, "f()", "x" + random.nextInt(4), "y" + i));
+			List<ConfiguredBolt> bolts = new ArrayList<>();
+			for (int i = 0; i < 40; ++i) {
+				String output = "x" + random.nextInt(12);
+				switch (random.nextInt(3)) {
+				case 0:
+					bolts.add(bolt("b" + i, "f()", output));
+					break;
+				case 1:
+					bolts.add(bolt("b" + i, "f(x" + random.nextInt(12) + ")", output));
+					break;
+				default:
+					bolts.add(bolt("b" + i, "f(x" + random.nextInt(12) + ", y" + random.nextInt(4) + ")", output));
+				}
+			}
+			for (SpringSpout spout : spouts) subject.add(spout);
+			for (ConfiguredBolt bolt : bolts) subject.add(bolt);
+			subject.run();
+
+			for (SpringSpout spout : spouts) {
+				Set<String> availableFields = new HashSet<>(asList(spout.getOutputFields()));
+				List<ConfiguredBolt> expected = scan(availableFields, new ArrayList<>(bolts));
+				assertEquals("round " + round + " " + spout, expected, subject.get(spout));
+			}
+		}
+	}
+
+	/**
+	 * Binds like the original algorithm: repeated scans until no more progress.
+	 */
+	private static List<ConfiguredBolt> scan(Set<String> availableFields, List<ConfiguredBolt> options) {
+		List<ConfiguredBolt> result = new ArrayList<>();
+		for (boolean collected = true; collected; ) {
+			collected = false;
+			for (Iterator<ConfiguredBolt> i = options.iterator(); i.hasNext(); ) {
+				ConfiguredBolt option = i.next();
+				if (availableFields.containsAll(asList(option.getInputFields()))) {
+					result.add(option);
+					availableFields.addAll(asList(option.getOutputFields()));
+					i.remove();
+					collected = true;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static void assertBranch(TopologyCompilation.Branch branch, String sourceId, String streamId,
+			String... boltIds) {
+		assertEquals(sourceId, branch.getSource().getId());
+		assertEquals(streamId, branch.getRoute().getStreamId());
+		List<String> ids = new ArrayList<>();
+		for (ConfiguredBolt bolt : branch.getBolts())
+			ids.add(bolt.getId());
+		assertEquals(asList(boltIds), ids);
+	}
+
 	private ConfiguredSpout spoutById(String id) {
 		Set<ConfiguredSpout> availableSpouts = subject.keySet();
 		for (ConfiguredSpout key : availableSpouts)
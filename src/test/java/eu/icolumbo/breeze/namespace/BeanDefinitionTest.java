@@ -1,9 +1,18 @@
 package eu.icolumbo.breeze.namespace;
 
+import eu.icolumbo.breeze.BeanResolution;
 import eu.icolumbo.breeze.FunctionSignature;
+import eu.icolumbo.breeze.IdleStrategy;
+import eu.icolumbo.breeze.JoinBolt;
 import eu.icolumbo.breeze.SpringBolt;
 import eu.icolumbo.breeze.SpringComponent;
 import eu.icolumbo.breeze.SpringSpout;
+import eu.icolumbo.breeze.StreamGrouping;
+import eu.icolumbo.breeze.StreamRoute;
+import eu.icolumbo.breeze.TestBean.Data;
+import eu.icolumbo.breeze.TestBean.Pair;
+import eu.icolumbo.breeze.build.TopologyFactoryBean;
+import org.apache.storm.Config;
 
 import org.apache.storm.generated.Bolt;
 import org.apache.storm.generated.ComponentCommon;
@@ -22,10 +31,16 @@ import org.springframework.expression.Expression;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Map;
 
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 
@@ -45,7 +60,7 @@ public class BeanDefinitionTest extends AbstractXmlApplicationContext {
 	public void build() throws Exception {
 		beansXml = "<breeze:topology id='t1'>" +
 				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'/>" +
-				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='replay' scatterOutput='true'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='replay' scatterOutput='true' beanResolution='invocation' metrics='false' metricSampling='100'/>" +
 				"<breeze:bolt beanType='eu.icolumbo.breeze.TestBean' signature='drain(replay)' parallelism='2'/>" +
 				"</breeze:topology>";
 		refresh();
@@ -53,13 +68,23 @@ public class BeanDefinitionTest extends AbstractXmlApplicationContext {
 		StormTopology topology = getBean("t1", StormTopology.class);
 		assertEquals("spout count", 1, topology.get_spouts_size());
 		assertEquals("bolt count", 2, topology.get_bolts_size());
+		assertEquals("worker hook count", 1, topology.get_worker_hooks_size());
 
 		SpringSpout spout = getBean("s1", SpringSpout.class);
 		assertEquals("spout ID", "s1", spout.getId());
 		assertEquals("spout scatter", false, spout.getScatterOutput());
+		assertEquals("spout bean resolution", BeanResolution.SCOPE, spout.getBeanResolution());
+		assertEquals("spout emit budget", 0, spout.getEmitBudget());
+		assertEquals("spout backoff multiplier", 1, spout.getBackoffMultiplier(), 0);
+		assertEquals("spout idle strategy", IdleStrategy.SPIN, spout.getIdleStrategy());
+		assertEquals("spout metrics", true, spout.getMetrics());
+		assertEquals("spout metric sampling", 8, spout.getMetricSampling());
 		SpringBolt bolt = getBean("b1", SpringBolt.class);
 		assertEquals("bolt ID", "b1", bolt.getId());
 		assertEquals("bolt scatter", true, bolt.getScatterOutput());
+		assertEquals("bolt bean resolution", BeanResolution.INVOCATION, bolt.getBeanResolution());
+		assertEquals("bolt metrics", false, bolt.getMetrics());
+		assertEquals("bolt metric sampling", 100, bolt.getMetricSampling());
 
 		Map<String, SpoutSpec> topologySpouts = topology.get_spouts();
 		SpoutSpec spoutSpec = topologySpouts.get("s1");
@@ -86,6 +111,161 @@ public class BeanDefinitionTest extends AbstractXmlApplicationContext {
 		GlobalStreamId streamId = boltInputs.keySet().iterator().next();
 		assertEquals("input component id", "s1", streamId.get_componentId());
 		assertEquals("input stream id", "default", streamId.get_streamId());
+		assertTrue("none grouping", boltInputs.get(streamId).is_set_none());
+	}
+
+	@Test
+	public void grouping() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed key'>" +
+				"  <breeze:field name='feed' expression='#root'/>" +
+				"  <breeze:field name='key' expression='hashCode()'/>" +
+				"</breeze:spout>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='replay' grouping='localOrShuffle'/>" +
+				"<breeze:bolt id='b2' beanType='eu.icolumbo.breeze.TestBean' signature='drain(replay)' grouping='fields' groupingFields='key'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringBolt b2 = getBean("b2", SpringBolt.class);
+		assertEquals(StreamGrouping.FIELDS, b2.getGrouping());
+		assertArrayEquals(new String[] {"key"}, b2.getGroupingFields());
+
+		StormTopology topology = getBean("t1", StormTopology.class);
+		Grouping first = topology.get_bolts().get("b1").get_common().get_inputs().get(new GlobalStreamId("s1", "default"));
+		assertTrue("local or shuffle", first.is_set_local_or_shuffle());
+		Grouping second = topology.get_bolts().get("b2").get_common().get_inputs().get(new GlobalStreamId("b1", "default"));
+		assertEquals("fields", asList("key"), second.get_fields());
+	}
+
+	@Test
+	public void fusion() throws Exception {
+		beansXml = "<breeze:topology id='t1' fusion='true'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='replay'/>" +
+				"<breeze:bolt id='b2' beanType='eu.icolumbo.breeze.TestBean' signature='drain(replay)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		StormTopology topology = getBean("t1", StormTopology.class);
+		assertEquals("bolt count", 1, topology.get_bolts_size());
+		ComponentCommon fused = topology.get_bolts().get("b1+b2").get_common();
+		assertNotNull("fused input", fused.get_inputs().get(new GlobalStreamId("s1", "default")));
+	}
+
+	@Test
+	public void fanOut() throws Exception {
+		beansXml = "<breeze:topology id='t1' fanOut='true'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='x'/>" +
+				"<breeze:bolt id='b2' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='y'/>" +
+				"<breeze:bolt id='b3' beanType='eu.icolumbo.breeze.TestBean' signature='array(x, y)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		StormTopology topology = getBean("t1", StormTopology.class);
+		assertEquals("bolt count", 5, topology.get_bolts_size());
+		Map<String,Bolt> bolts = topology.get_bolts();
+		assertNotNull("fork input", bolts.get("b1+b2-fork").get_common().get_inputs().get(new GlobalStreamId("s1", "default")));
+		assertNotNull("b1 input", bolts.get("b1").get_common().get_inputs().get(new GlobalStreamId("b1+b2-fork", "default")));
+		assertNotNull("b2 input", bolts.get("b2").get_common().get_inputs().get(new GlobalStreamId("b1+b2-fork", "default")));
+
+		Map<GlobalStreamId,Grouping> joinInputs = bolts.get("b1+b2-join").get_common().get_inputs();
+		assertEquals("join inputs", 2, joinInputs.size());
+		assertEquals(asList(JoinBolt.KEY_FIELD), joinInputs.get(new GlobalStreamId("b2", "default")).get_fields());
+		assertNotNull("b3 input", bolts.get("b3").get_common().get_inputs().get(new GlobalStreamId("b1+b2-join", "default")));
+	}
+
+	@Test
+	public void routes() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'>" +
+				"<breeze:stream id='long' outputFields='text' type='java.lang.String' condition='length() > 3'/>" +
+				"</breeze:spout>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='x'/>" +
+				"<breeze:bolt id='b2' beanType='eu.icolumbo.breeze.TestBean' signature='echo(text)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringSpout spout = getBean("s1", SpringSpout.class);
+		assertEquals(1, spout.getRoutes().size());
+		StreamRoute route = spout.getRoutes().get(0);
+		assertEquals("long", route.getStreamId());
+		assertArrayEquals(new String[] {"text"}, route.getOutputFields());
+		assertEquals(String.class, route.getEntryType());
+		assertEquals("length() > 3", route.getCondition());
+
+		StormTopology topology = getBean("t1", StormTopology.class);
+		assertEquals(asList("text"), topology.get_spouts().get("s1").get_common().get_streams().get("long").get_output_fields());
+		Map<String,Bolt> bolts = topology.get_bolts();
+		assertEquals(asList(new GlobalStreamId("s1", "default")), new ArrayList<>(bolts.get("b1").get_common().get_inputs().keySet()));
+		assertEquals(asList(new GlobalStreamId("s1", "long")), new ArrayList<>(bolts.get("b2").get_common().get_inputs().keySet()));
+	}
+
+	@Test
+	public void serializations() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='nullPair()' outputFields='pair'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(pair)' outputFields='x'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		Config config = new Config();
+		getBean("&t1", TopologyFactoryBean.class).registerSerializations(config);
+		assertEquals(asList(Pair.class.getName(), Data.class.getName()), config.get(Config.TOPOLOGY_KRYO_REGISTER));
+		assertNull(config.get(Config.TOPOLOGY_FALL_BACK_ON_JAVA_SERIALIZATION));
+	}
+
+	@Test
+	public void serializationsWithoutJava() throws Exception {
+		beansXml = "<breeze:topology id='t1' javaSerialization='false'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='nullObject()' outputFields='data'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(data)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		Config config = new Config();
+		getBean("&t1", TopologyFactoryBean.class).registerSerializations(config);
+		assertEquals(asList(Data.class.getName()), config.get(Config.TOPOLOGY_KRYO_REGISTER));
+		assertEquals(false, config.get(Config.TOPOLOGY_FALL_BACK_ON_JAVA_SERIALIZATION));
+
+		beansXml = "<breeze:topology id='t2' javaSerialization='false'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='nullPair()' outputFields='pair'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(pair)'/>" +
+				"</breeze:topology>";
+		refresh();
+		try {
+			getBean(StormTopology.class);
+			fail("no exception");
+		} catch (BeanCreationException e) {
+			assertEquals("No Kryo instantiation for " + Pair.class.getName() + " from [spout 's1']"
+					+ " without Java serialization", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void partialKey() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' outputFields='replay'" +
+				" grouping='partialKey' groupingFields='feed' merge='echo(replay)' parallelism='4'/>" +
+				"<breeze:bolt id='b2' beanType='eu.icolumbo.breeze.TestBean' signature='drain(replay)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		StormTopology topology = getBean("t1", StormTopology.class);
+		assertEquals("bolt count", 3, topology.get_bolts_size());
+
+		ComponentCommon partial = topology.get_bolts().get("b1").get_common();
+		Grouping split = partial.get_inputs().get(new GlobalStreamId("s1", "default"));
+		assertTrue("custom grouping", split.is_set_custom_serialized());
+
+		ComponentCommon merge = topology.get_bolts().get("b1-merge").get_common();
+		assertEquals("merge parallelism", 4, merge.get_parallelism_hint());
+		Grouping recombine = merge.get_inputs().get(new GlobalStreamId("b1", "default"));
+		assertEquals("merge fields", asList("feed"), recombine.get_fields());
+
+		ComponentCommon last = topology.get_bolts().get("b2").get_common();
+		assertNotNull("merge output", last.get_inputs().get(new GlobalStreamId("b1-merge", "default")));
 	}
 
 
@@ -158,6 +338,90 @@ public class BeanDefinitionTest extends AbstractXmlApplicationContext {
 		assertEquals(new Long(2000), delayExceptions.get(IOException.class));
 	}
 
+	@Test
+	public void spoutBackoff() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'" +
+				" backoffMultiplier='1.5' maxBackoff='9000' backoffJitter='0.2' idle='park' idleDelay='5'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringSpout spout = getBean("s1", SpringSpout.class);
+		assertEquals(1.5, spout.getBackoffMultiplier(), 0);
+		assertEquals(9000, spout.getMaxBackoff());
+		assertEquals(0.2, spout.getBackoffJitter(), 0);
+		assertEquals(IdleStrategy.PARK, spout.getIdleStrategy());
+		assertEquals(5, spout.getIdleDelay());
+		assertEquals(0, spout.getPrefetchThreads());
+		assertEquals(1024, spout.getPrefetchCapacity());
+		assertEquals(0, spout.getMaxReplays());
+	}
+
+	@Test
+	public void spoutReplay() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'" +
+				" maxReplays='3' replayDelays='100 1000' replayCapacity='500'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringSpout spout = getBean("s1", SpringSpout.class);
+		assertEquals(3, spout.getMaxReplays());
+		assertArrayEquals(new long[] {100, 1000}, spout.getReplayDelays());
+		assertEquals(500, spout.getReplayCapacity());
+	}
+
+	@Test
+	public void batch() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echoAll(feed)' batchSize='50' batchTimeout='200'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringBolt bolt = getBean("b1", SpringBolt.class);
+		assertEquals(50, bolt.getBatchSize());
+		assertEquals(200, bolt.getBatchTimeout());
+	}
+
+	@Test
+	public void async() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='later(feed)' maxInFlight='8' orderedCompletion='true'/>" +
+				"<breeze:bolt id='b2' beanType='eu.icolumbo.breeze.TestBean' signature='later(feed)'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringBolt ordered = getBean("b1", SpringBolt.class);
+		assertEquals(8, ordered.getMaxInFlight());
+		assertTrue(ordered.getOrderedCompletion());
+
+		SpringBolt unordered = getBean("b2", SpringBolt.class);
+		assertEquals(64, unordered.getMaxInFlight());
+		assertFalse(unordered.getOrderedCompletion());
+	}
+
+	@Test
+	public void executor() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'/>" +
+				"<breeze:bolt id='b1' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' executor='virtual' orderingKey='feed'/>" +
+				"<breeze:bolt id='b2' beanType='eu.icolumbo.breeze.TestBean' signature='echo(feed)' executor='12'/>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringBolt virtual = getBean("b1", SpringBolt.class);
+		assertEquals("virtual", virtual.getExecutor());
+		assertEquals("feed", virtual.getOrderingKey());
+
+		SpringBolt pooled = getBean("b2", SpringBolt.class);
+		assertEquals("12", pooled.getExecutor());
+		assertNull(pooled.getOrderingKey());
+	}
+
 	@Test
 	public void transactionAck() throws Exception {
 		beansXml = "<breeze:topology id='t1'>" +
@@ -171,6 +435,21 @@ public class BeanDefinitionTest extends AbstractXmlApplicationContext {
 
 		FunctionSignature ackSignature = read(spout, spout.getClass(), "ackSignature");
 		assertEquals("ok", ackSignature.getFunction());
+		assertEquals(1, spout.getTransactionBatchSize());
+	}
+
+	@Test
+	public void transactionBatch() throws Exception {
+		beansXml = "<breeze:topology id='t1'>" +
+				"<breeze:spout id='s1' beanType='eu.icolumbo.breeze.TestBean' signature='ping()' outputFields='feed'>" +
+				"  <breeze:transaction ack='ok(feed)' batchSize='100' batchTimeout='250'/>" +
+				"</breeze:spout>" +
+				"</breeze:topology>";
+		refresh();
+
+		SpringSpout spout = getBean(SpringSpout.class);
+		assertEquals(100, spout.getTransactionBatchSize());
+		assertEquals(250, spout.getTransactionBatchTimeout());
 	}
 
 	@Test